@@ -1,8 +1,10 @@
 package cn.tjh666.demo;
 
+import cn.tjh666.httpframework.annotation.Body;
 import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
 import cn.tjh666.httpframework.annotation.Post;
-import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.annotation.QueryParam;
 import cn.tjh666.httpframework.context.Response;
 
 import java.util.HashMap;
@@ -17,77 +19,71 @@ public class CalculatorController {
     
     /**
      * 基本算术运算
-     * @param request HTTP请求对象
+     * @param operation 运算名称
+     * @param aValue 第一个操作数
+     * @param bValue 第二个操作数
      * @return 计算结果
      */
     @Get("/calc/{operation}")
-    public Map<String, Object> calculate(Request request) {
-        String operation = request.getPathParam("operation");
-        String aStr = request.getQueryParam("a");
-        String bStr = request.getQueryParam("b");
-        
+    public Map<String, Object> calculate(@PathParam("operation") String operation,
+                                         @QueryParam("a") Double aValue,
+                                         @QueryParam("b") Double bValue) {
         Map<String, Object> result = new HashMap<>();
         
-        try {
-            if (aStr == null || bStr == null) {
-                result.put("error", "参数a和b是必需的");
-                return result;
-            }
-            
-            double a = Double.parseDouble(aStr);
-            double b = Double.parseDouble(bStr);
-            double calcResult;
-            
-            switch (operation.toLowerCase()) {
-                case "add":
-                    calcResult = a + b;
-                    break;
-                case "subtract":
-                    calcResult = a - b;
-                    break;
-                case "multiply":
-                    calcResult = a * b;
-                    break;
-                case "divide":
-                    if (b == 0) {
-                        result.put("error", "除数不能为零");
-                        return result;
-                    }
-                    calcResult = a / b;
-                    break;
-                case "power":
-                    calcResult = Math.pow(a, b);
-                    break;
-                default:
-                    result.put("error", "不支持的运算: " + operation);
-                    result.put("supported", new String[]{"add", "subtract", "multiply", "divide", "power"});
+        if (aValue == null || bValue == null) {
+            result.put("error", "参数a和b是必需的");
+            return result;
+        }
+        
+        double a = aValue;
+        double b = bValue;
+        double calcResult;
+        
+        switch (operation.toLowerCase()) {
+            case "add":
+                calcResult = a + b;
+                break;
+            case "subtract":
+                calcResult = a - b;
+                break;
+            case "multiply":
+                calcResult = a * b;
+                break;
+            case "divide":
+                if (b == 0) {
+                    result.put("error", "除数不能为零");
                     return result;
-            }
-            
-            result.put("operation", operation);
-            result.put("a", a);
-            result.put("b", b);
-            result.put("result", calcResult);
-            result.put("expression", a + " " + getOperationSymbol(operation) + " " + b + " = " + calcResult);
-            
-        } catch (NumberFormatException e) {
-            result.put("error", "无效的数字格式");
+                }
+                calcResult = a / b;
+                break;
+            case "power":
+                calcResult = Math.pow(a, b);
+                break;
+            default:
+                result.put("error", "不支持的运算: " + operation);
+                result.put("supported", new String[]{"add", "subtract", "multiply", "divide", "power"});
+                return result;
         }
         
+        result.put("operation", operation);
+        result.put("a", a);
+        result.put("b", b);
+        result.put("result", calcResult);
+        result.put("expression", a + " " + getOperationSymbol(operation) + " " + b + " = " + calcResult);
+        
         return result;
     }
     
     /**
      * 复杂表达式计算
-     * @param request HTTP请求对象
+     * @param requestData 请求体，包含 expression 字段
      * @param response HTTP响应对象
      */
     @Post("/calc/expression")
-    public void evaluateExpression(Request request, Response response) {
+    public void evaluateExpression(@Body Map<String, Object> requestData, Response response) {
         try {
-            String body = request.getBody();
-            Map<String, Object> requestData = parseSimpleJson(body);
-            String expression = (String) requestData.get("expression");
+            Object expressionValue = requestData != null ? requestData.get("expression") : null;
+            String expression = expressionValue != null ? expressionValue.toString() : null;
             
             if (expression == null || expression.trim().isEmpty()) {
                 Map<String, Object> errorResponse = new HashMap<>();
@@ -115,80 +111,74 @@ public class CalculatorController {
     
     /**
      * 数学函数计算
-     * @param request HTTP请求对象
+     * @param function 函数名称
+     * @param xValue 自变量
      * @return 计算结果
      */
     @Get("/calc/math/{function}")
-    public Map<String, Object> mathFunction(Request request) {
-        String function = request.getPathParam("function");
-        String xStr = request.getQueryParam("x");
-        
+    public Map<String, Object> mathFunction(@PathParam("function") String function,
+                                            @QueryParam("x") Double xValue) {
         Map<String, Object> result = new HashMap<>();
         
-        try {
-            if (xStr == null) {
-                result.put("error", "参数x是必需的");
-                return result;
-            }
-            
-            double x = Double.parseDouble(xStr);
-            double calcResult;
-            
-            switch (function.toLowerCase()) {
-                case "sin":
-                    calcResult = Math.sin(x);
-                    break;
-                case "cos":
-                    calcResult = Math.cos(x);
-                    break;
-                case "tan":
-                    calcResult = Math.tan(x);
-                    break;
-                case "sqrt":
-                    if (x < 0) {
-                        result.put("error", "负数不能开平方根");
-                        return result;
-                    }
-                    calcResult = Math.sqrt(x);
-                    break;
-                case "log":
-                    if (x <= 0) {
-                        result.put("error", "对数的真数必须大于0");
-                        return result;
-                    }
-                    calcResult = Math.log(x);
-                    break;
-                case "log10":
-                    if (x <= 0) {
-                        result.put("error", "对数的真数必须大于0");
-                        return result;
-                    }
-                    calcResult = Math.log10(x);
-                    break;
-                case "abs":
-                    calcResult = Math.abs(x);
-                    break;
-                case "ceil":
-                    calcResult = Math.ceil(x);
-                    break;
-                case "floor":
-                    calcResult = Math.floor(x);
-                    break;
-                default:
-                    result.put("error", "不支持的数学函数: " + function);
-                    result.put("supported", new String[]{"sin", "cos", "tan", "sqrt", "log", "log10", "abs", "ceil", "floor"});
+        if (xValue == null) {
+            result.put("error", "参数x是必需的");
+            return result;
+        }
+        
+        double x = xValue;
+        double calcResult;
+        
+        switch (function.toLowerCase()) {
+            case "sin":
+                calcResult = Math.sin(x);
+                break;
+            case "cos":
+                calcResult = Math.cos(x);
+                break;
+            case "tan":
+                calcResult = Math.tan(x);
+                break;
+            case "sqrt":
+                if (x < 0) {
+                    result.put("error", "负数不能开平方根");
                     return result;
-            }
-            
-            result.put("function", function);
-            result.put("x", x);
-            result.put("result", calcResult);
-            result.put("expression", function + "(" + x + ") = " + calcResult);
-            
-        } catch (NumberFormatException e) {
-            result.put("error", "无效的数字格式");
+                }
+                calcResult = Math.sqrt(x);
+                break;
+            case "log":
+                if (x <= 0) {
+                    result.put("error", "对数的真数必须大于0");
+                    return result;
+                }
+                calcResult = Math.log(x);
+                break;
+            case "log10":
+                if (x <= 0) {
+                    result.put("error", "对数的真数必须大于0");
+                    return result;
+                }
+                calcResult = Math.log10(x);
+                break;
+            case "abs":
+                calcResult = Math.abs(x);
+                break;
+            case "ceil":
+                calcResult = Math.ceil(x);
+                break;
+            case "floor":
+                calcResult = Math.floor(x);
+                break;
+            default:
+                result.put("error", "不支持的数学函数: " + function);
+                result.put("supported", new String[]{"sin", "cos", "tan", "sqrt", "log", "log10", "abs", "ceil", "floor"});
+                return result;
         }
         
+        result.put("function", function);
+        result.put("x", x);
+        result.put("result", calcResult);
+        result.put("expression", function + "(" + x + ") = " + calcResult);
+        
         return result;
     }
     
@@ -245,26 +235,4 @@ public class CalculatorController {
         // 如果没有运算符，直接返回数字
         return Double.parseDouble(expression);
     }
-    
-    /**
-     * 简单的JSON解析方法
-     * @param json JSON字符串
-     * @return 解析后的Map
-     */
-    private Map<String, Object> parseSimpleJson(String json) {
-        Map<String, Object> result = new HashMap<>();
-        json = json.trim().replaceAll("[{}\"]", "");
-        String[] pairs = json.split(",");
-        
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":");
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim();
-                String value = keyValue[1].trim();
-                result.put(key, value);
-            }
-        }
-        
-        return result;
-    }
 }
\ No newline at end of file
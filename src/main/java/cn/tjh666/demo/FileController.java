@@ -1,21 +1,31 @@
 package cn.tjh666.demo;
 
+import cn.tjh666.httpframework.annotation.Execution;
+import cn.tjh666.httpframework.annotation.ExecutionMode;
 import cn.tjh666.httpframework.annotation.Get;
 import cn.tjh666.httpframework.annotation.Post;
+import cn.tjh666.httpframework.annotation.QueryParam;
+import cn.tjh666.httpframework.annotation.Streaming;
 import cn.tjh666.httpframework.context.Request;
 import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.SpooledBody;
+import cn.tjh666.httpframework.context.StreamingBody;
+import io.netty.handler.codec.http.multipart.FileUpload;
 
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 
 /**
  * 文件服务API示例
+ * 文件读写会阻塞线程，整个控制器在虚拟线程上执行（Java 17上回退到工作线程池）
  * @author Schrobit
  * @email admin@tjh666.cn
  */
+@Execution(ExecutionMode.VIRTUAL)
 public class FileController {
     
     private static final String UPLOAD_DIR = "uploads";
@@ -157,4 +167,80 @@ public class FileController {
             response.json(500, errorResponse);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 上传大文件（流式请求体）
+     * 请求体不经过聚合，不受最大请求体长度限制；超过1MB的部分写入临时文件，完成后重命名到上传目录
+     * @param filename 文件名
+     * @param body 流式请求体
+     * @return 上传结果
+     */
+    @Post("/files/upload/stream")
+    @Streaming
+    public CompletionStage<Map<String, Object>> uploadStream(@QueryParam("filename") String filename,
+                                                             StreamingBody body) {
+        if (filename == null || filename.trim().isEmpty()) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        // 只保留文件名部分，防止路径穿越
+        String safeName = Paths.get(filename).getFileName().toString();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String uniqueFilename = timestamp + "_" + safeName;
+        
+        return body.spool(1024 * 1024, Paths.get(UPLOAD_DIR)).thenApply(spooled -> {
+            try (SpooledBody file = spooled) {
+                file.moveTo(Paths.get(UPLOAD_DIR, uniqueFilename));
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("message", "文件上传成功");
+                result.put("filename", uniqueFilename);
+                result.put("originalName", safeName);
+                result.put("size", file.size());
+                result.put("uploadTime", LocalDateTime.now().toString());
+                return result;
+            } catch (IOException e) {
+                throw new UncheckedIOException("文件上传失败: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * 上传文件（multipart/form-data）
+     * 表单边接收边解码，超过内存阈值的文件直接写入临时文件，完成后重命名到上传目录，不经过堆内存
+     * @param body 流式请求体
+     * @return 上传结果
+     */
+    @Post("/files/upload/form")
+    @Streaming
+    public CompletionStage<Map<String, Object>> uploadForm(StreamingBody body) {
+        return body.form().thenApply(form -> {
+            List<Map<String, Object>> uploaded = new ArrayList<>();
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            try {
+                for (FileUpload upload : form.getFiles()) {
+                    // 只保留文件名部分，防止路径穿越
+                    String safeName = Paths.get(upload.getFilename()).getFileName().toString();
+                    String uniqueFilename = timestamp + "_" + safeName;
+                    long size = upload.length();
+                    upload.renameTo(Paths.get(UPLOAD_DIR, uniqueFilename).toFile());
+                    
+                    Map<String, Object> fileInfo = new HashMap<>();
+                    fileInfo.put("field", upload.getName());
+                    fileInfo.put("filename", uniqueFilename);
+                    fileInfo.put("originalName", safeName);
+                    fileInfo.put("size", size);
+                    uploaded.add(fileInfo);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("文件上传失败: " + e.getMessage(), e);
+            }
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("message", "文件上传成功");
+            result.put("files", uploaded);
+            result.put("fields", form.getParamMap());
+            result.put("uploadTime", LocalDateTime.now().toString());
+            return result;
+        });
+    }
+}
@@ -1,7 +1,6 @@
 package cn.tjh666.demo;
 
 import cn.tjh666.httpframework.annotation.*;
-import cn.tjh666.httpframework.context.Request;
 import cn.tjh666.httpframework.context.Response;
 
 import java.util.*;
@@ -29,17 +28,13 @@ public class UserController {
     
     /**
      * 获取所有用户
-     * @param request HTTP请求对象
+     * @param page 页码
+     * @param size 每页数量
      * @return 用户列表
      */
     @Get("/users")
-    public Map<String, Object> getAllUsers(Request request) {
-        String pageStr = request.getQueryParam("page");
-        String sizeStr = request.getQueryParam("size");
-        
-        int page = pageStr != null ? Integer.parseInt(pageStr) : 1;
-        int size = sizeStr != null ? Integer.parseInt(sizeStr) : 10;
-        
+    public Map<String, Object> getAllUsers(@QueryParam(value = "page", defaultValue = "1") int page,
+                                           @QueryParam(value = "size", defaultValue = "10") int size) {
         List<User> userList = new ArrayList<>(users.values());
         int start = (page - 1) * size;
         int end = Math.min(start + size, userList.size());
@@ -59,163 +54,121 @@ public class UserController {
     
     /**
      * 根据ID获取用户
-     * @param request HTTP请求对象
+     * @param id 用户ID
      * @param response HTTP响应对象
      */
     @Get("/users/{id}")
-    public void getUserById(Request request, Response response) {
-        try {
-            Long id = Long.parseLong(request.getPathParam("id"));
-            User user = users.get(id);
-            
-            if (user != null) {
-                response.json(200, user);
-            } else {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "用户不存在");
-                errorResponse.put("id", id);
-                response.json(404, errorResponse);
-            }
-        } catch (NumberFormatException e) {
+    public void getUserById(@PathParam("id") long id, Response response) {
+        User user = users.get(id);
+        
+        if (user != null) {
+            response.json(200, user);
+        } else {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "无效的用户ID");
-            response.json(400, errorResponse);
+            errorResponse.put("error", "用户不存在");
+            errorResponse.put("id", id);
+            response.json(404, errorResponse);
         }
     }
     
     /**
      * 创建新用户
-     * @param request HTTP请求对象
+     * @param userData 请求体中的用户数据
      * @param response HTTP响应对象
      */
     @Post("/users")
-    public void createUser(Request request, Response response) {
-        try {
-            String body = request.getBody();
-            if (body == null || body.trim().isEmpty()) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "请求体不能为空");
-                response.json(400, errorResponse);
-                return;
-            }
-            
-            // 简单的JSON解析（实际项目中建议使用Jackson）
-            Map<String, Object> userData = parseSimpleJson(body);
-            
-            String name = (String) userData.get("name");
-            String email = (String) userData.get("email");
-            Integer age = userData.get("age") != null ? 
-                Integer.parseInt(userData.get("age").toString()) : null;
-            
-            if (name == null || email == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "姓名和邮箱是必填项");
-                response.json(400, errorResponse);
-                return;
-            }
-            
-            Long id = idGenerator.getAndIncrement();
-            User newUser = new User(id, name, email, age);
-            users.put(id, newUser);
-            
-            Map<String, Object> successResponse = new HashMap<>();
-            successResponse.put("message", "用户创建成功");
-            successResponse.put("user", newUser);
-            response.json(201, successResponse);
-            
-        } catch (Exception e) {
+    public void createUser(@Body User userData, Response response) {
+        if (userData == null) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "请求体不能为空");
+            response.json(400, errorResponse);
+            return;
+        }
+        
+        if (userData.getName() == null || userData.getEmail() == null) {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "创建用户失败: " + e.getMessage());
+            errorResponse.put("error", "姓名和邮箱是必填项");
             response.json(400, errorResponse);
+            return;
         }
+        
+        Long id = idGenerator.getAndIncrement();
+        User newUser = new User(id, userData.getName(), userData.getEmail(), userData.getAge());
+        users.put(id, newUser);
+        
+        Map<String, Object> successResponse = new HashMap<>();
+        successResponse.put("message", "用户创建成功");
+        successResponse.put("user", newUser);
+        response.json(201, successResponse);
     }
     
     /**
      * 更新用户信息
-     * @param request HTTP请求对象
+     * @param id 用户ID
+     * @param updateData 请求体中的更新数据，未提供的字段保持不变
      * @param response HTTP响应对象
      */
     @Put("/users/{id}")
-    public void updateUser(Request request, Response response) {
-        try {
-            Long id = Long.parseLong(request.getPathParam("id"));
-            User existingUser = users.get(id);
-            
-            if (existingUser == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "用户不存在");
-                errorResponse.put("id", id);
-                response.json(404, errorResponse);
-                return;
-            }
-            
-            String body = request.getBody();
-            Map<String, Object> updateData = parseSimpleJson(body);
-            
-            // 更新用户信息
-            String name = (String) updateData.get("name");
-            String email = (String) updateData.get("email");
-            Integer age = updateData.get("age") != null ? 
-                Integer.parseInt(updateData.get("age").toString()) : null;
-            
-            User updatedUser = new User(
-                id,
-                name != null ? name : existingUser.getName(),
-                email != null ? email : existingUser.getEmail(),
-                age != null ? age : existingUser.getAge()
-            );
-            
-            users.put(id, updatedUser);
-            
-            Map<String, Object> successResponse = new HashMap<>();
-            successResponse.put("message", "用户更新成功");
-            successResponse.put("user", updatedUser);
-            response.json(200, successResponse);
-            
-        } catch (Exception e) {
+    public void updateUser(@PathParam("id") long id, @Body User updateData, Response response) {
+        User existingUser = users.get(id);
+        
+        if (existingUser == null) {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "更新用户失败: " + e.getMessage());
-            response.json(400, errorResponse);
+            errorResponse.put("error", "用户不存在");
+            errorResponse.put("id", id);
+            response.json(404, errorResponse);
+            return;
+        }
+        
+        if (updateData == null) {
+            updateData = new User();
         }
+        
+        // 更新用户信息
+        User updatedUser = new User(
+            id,
+            updateData.getName() != null ? updateData.getName() : existingUser.getName(),
+            updateData.getEmail() != null ? updateData.getEmail() : existingUser.getEmail(),
+            updateData.getAge() != null ? updateData.getAge() : existingUser.getAge()
+        );
+        
+        users.put(id, updatedUser);
+        
+        Map<String, Object> successResponse = new HashMap<>();
+        successResponse.put("message", "用户更新成功");
+        successResponse.put("user", updatedUser);
+        response.json(200, successResponse);
     }
     
     /**
      * 删除用户
-     * @param request HTTP请求对象
+     * @param id 用户ID
      * @param response HTTP响应对象
      */
     @Delete("/users/{id}")
-    public void deleteUser(Request request, Response response) {
-        try {
-            Long id = Long.parseLong(request.getPathParam("id"));
-            User deletedUser = users.remove(id);
-            
-            if (deletedUser != null) {
-                Map<String, Object> successResponse = new HashMap<>();
-                successResponse.put("message", "用户删除成功");
-                successResponse.put("user", deletedUser);
-                response.json(200, successResponse);
-            } else {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "用户不存在");
-                errorResponse.put("id", id);
-                response.json(404, errorResponse);
-            }
-        } catch (NumberFormatException e) {
+    public void deleteUser(@PathParam("id") long id, Response response) {
+        User deletedUser = users.remove(id);
+        
+        if (deletedUser != null) {
+            Map<String, Object> successResponse = new HashMap<>();
+            successResponse.put("message", "用户删除成功");
+            successResponse.put("user", deletedUser);
+            response.json(200, successResponse);
+        } else {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "无效的用户ID");
-            response.json(400, errorResponse);
+            errorResponse.put("error", "用户不存在");
+            errorResponse.put("id", id);
+            response.json(404, errorResponse);
         }
     }
     
     /**
      * 搜索用户
-     * @param request HTTP请求对象
+     * @param keyword 搜索关键字
      * @return 搜索结果
      */
     @Get("/users/search")
-    public Map<String, Object> searchUsers(Request request) {
-        String keyword = request.getQueryParam("q");
+    public Map<String, Object> searchUsers(@QueryParam("q") String keyword) {
         
         if (keyword == null || keyword.trim().isEmpty()) {
             Map<String, Object> result = new HashMap<>();
@@ -240,30 +193,6 @@ public class UserController {
         return result;
     }
     
-    /**
-     * 简单的JSON解析方法（仅用于演示）
-     * @param json JSON字符串
-     * @return 解析后的Map
-     */
-    private Map<String, Object> parseSimpleJson(String json) {
-        Map<String, Object> result = new HashMap<>();
-        // 这里是一个非常简单的JSON解析实现，仅用于演示
-        // 实际项目中应该使用Jackson等专业库
-        json = json.trim().replaceAll("[{}\"]", "");
-        String[] pairs = json.split(",");
-        
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":");
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim();
-                String value = keyValue[1].trim();
-                result.put(key, value);
-            }
-        }
-        
-        return result;
-    }
-    
     /**
      * 用户实体类
      */
@@ -273,6 +202,9 @@ public class UserController {
         private String email;
         private Integer age;
         
+        // 默认构造函数（Jackson需要）
+        public User() {}
+        
         public User(Long id, String name, String email, Integer age) {
             this.id = id;
             this.name = name;
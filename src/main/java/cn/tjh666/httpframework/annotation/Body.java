@@ -0,0 +1,21 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 请求体注解
+ * 用于将请求体绑定到控制器方法参数
+ * String 参数接收UTF-8文本，byte[] 参数接收原始字节，
+ * ByteBuf / ByteBuffer / InputStream 参数接收不拷贝的只读视图（只在请求处理期间有效），
+ * 其他类型按JSON反序列化
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Body {
+}
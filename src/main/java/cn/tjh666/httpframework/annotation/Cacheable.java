@@ -0,0 +1,43 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应缓存注解
+ * 标注的GET方法的200响应体在编码后缓存，有效期内相同的请求（方法、路径、查询参数和 {@link #headers()}
+ * 指定的请求头均相同）直接返回缓存的响应，不调用控制器方法，也不重新序列化
+ * 
+ * 适用于结果只取决于请求本身、短时间内允许重复返回的接口；结果与登录用户相关时，
+ * 需要把区分用户的请求头（如Authorization）加入 {@link #headers()}
+ * 
+ * 使用示例：
+ * {@code @Get("/users") @Cacheable(ttl = 30)}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+    /**
+     * 缓存有效期
+     * @return 有效期，单位由 {@link #unit()} 指定
+     */
+    long ttl();
+
+    /**
+     * 有效期的时间单位
+     * @return 时间单位，默认秒
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * 参与缓存键的请求头，值不同的请求分别缓存，同时通过Vary响应头告知下游缓存
+     * @return 请求头名称
+     */
+    String[] headers() default {};
+}
@@ -0,0 +1,44 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求合并注解
+ * 标注的GET方法正在处理某个请求时，到达的相同请求（方法、路径、查询参数和 {@link #headers()}
+ * 指定的请求头均相同）不再调用方法，而是等待正在进行的调用，完成后得到同一份编码后的响应。
+ * 适用于计算代价高、同一时刻可能被大量客户端同时请求的接口，例如缓存刚过期的热点数据
+ * 
+ * 执行的请求失败（5xx响应或抛出异常）、没有发送完整响应（如使用 {@code Response.stream}），
+ * 或超过 {@link #timeout()} 仍未完成时，等待的请求各自调用方法
+ * 
+ * 使用示例：
+ * {@code @Get("/ranking") @Coalesce}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+    /**
+     * 参与合并判断的请求头，值不同的请求分别调用
+     * @return 请求头名称
+     */
+    String[] headers() default {};
+
+    /**
+     * 等待进行中调用的最长时间，超时后等待的请求自行调用方法，之后的相同请求不再加入这次调用
+     * @return 超时，单位由 {@link #unit()} 指定
+     */
+    long timeout() default 10;
+
+    /**
+     * 超时的时间单位
+     * @return 时间单位，默认秒
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,26 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 执行模式注解
+ * 用于指定控制器方法在哪类线程上执行，可标注在方法或控制器类上，方法上的注解优先
+ * 
+ * 使用示例：
+ * {@code @Execution(ExecutionMode.WORKER)}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Execution {
+    /**
+     * 执行模式
+     * @return 执行模式
+     */
+    ExecutionMode value();
+}
@@ -0,0 +1,29 @@
+package cn.tjh666.httpframework.annotation;
+
+/**
+ * 控制器方法的执行模式
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public enum ExecutionMode {
+    /**
+     * 使用服务器配置的默认执行模式
+     */
+    DEFAULT,
+
+    /**
+     * 直接在Netty事件循环线程上执行，适用于不阻塞的轻量处理
+     */
+    EVENT_LOOP,
+
+    /**
+     * 在有界工作线程池中执行，适用于阻塞I/O
+     */
+    WORKER,
+
+    /**
+     * 每个请求一个虚拟线程（需要Java 21+，低版本自动回退到工作线程池）
+     */
+    VIRTUAL
+}
@@ -0,0 +1,31 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 表单字段注解
+ * 用于将 multipart/form-data 或 application/x-www-form-urlencoded 表单字段绑定到控制器方法参数，
+ * 如 {@code @FormParam("title") String title}、{@code @FormParam("file") FileUpload file}
+ * 支持 String、基本类型及其包装类型、枚举，以及上传文件 {@link io.netty.handler.codec.http.multipart.FileUpload}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FormParam {
+    /**
+     * 表单字段名
+     * @return 字段名
+     */
+    String value();
+
+    /**
+     * 缺省值，表单中不存在该字段时使用（不适用于文件）
+     * @return 缺省值字符串，空字符串表示没有缺省值
+     */
+    String defaultValue() default "";
+}
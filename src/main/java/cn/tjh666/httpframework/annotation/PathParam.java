@@ -0,0 +1,24 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 路径参数注解
+ * 用于将路径参数绑定到控制器方法参数，如 {@code @PathParam("id") long id}
+ * 支持 String、基本类型及其包装类型、枚举
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PathParam {
+    /**
+     * 路径参数名，对应路由路径中的 {name}
+     * @return 参数名
+     */
+    String value();
+}
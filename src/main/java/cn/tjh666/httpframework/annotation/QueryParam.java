@@ -0,0 +1,30 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 查询参数注解
+ * 用于将查询参数绑定到控制器方法参数，如 {@code @QueryParam("page") int page}
+ * 支持 String、基本类型及其包装类型、枚举
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryParam {
+    /**
+     * 查询参数名
+     * @return 参数名
+     */
+    String value();
+
+    /**
+     * 缺省值，请求中不存在该参数时使用
+     * @return 缺省值字符串，空字符串表示没有缺省值
+     */
+    String defaultValue() default "";
+}
@@ -0,0 +1,22 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 流式请求体注解
+ * 标注的方法在请求头到达后立即调用，请求体不经过聚合，
+ * 通过 {@link cn.tjh666.httpframework.context.StreamingBody} 参数按需读取，不受最大请求体长度限制
+ * 
+ * 使用示例：
+ * {@code @Post("/upload") @Streaming}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Streaming {
+}
@@ -0,0 +1,30 @@
+package cn.tjh666.httpframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 版本标记注解
+ * 指定同一控制器中返回资源版本的方法，该方法的参数绑定方式与路由方法相同，返回值（如更新时间戳、
+ * 版本号）作为响应的ETag。请求的 If-None-Match 与之匹配时直接返回304，不调用路由方法，也不序列化响应体；
+ * 返回null时按普通请求处理
+ * 
+ * 版本方法在分发请求的线程上执行，应当足够轻量（例如读取内存中的版本号）
+ * 
+ * 使用示例：
+ * {@code @Get("/products/{id}") @Versioned("productVersion")}
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Versioned {
+    /**
+     * 版本方法名
+     * @return 同一控制器中的方法名
+     */
+    String value();
+}
@@ -0,0 +1,185 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.multipart.Attribute;
+import io.netty.handler.codec.http.multipart.FileUpload;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+import io.netty.handler.codec.http.multipart.InterfaceHttpData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表单数据
+ * 解析 multipart/form-data 和 application/x-www-form-urlencoded 请求体，基于Netty的 {@link HttpPostRequestDecoder}
+ *
+ * 文件字段由 {@link HttpDataFactory} 决定存放位置：默认小于16KB的保存在内存中，超过后写入磁盘临时文件。
+ * 通过 {@link FileUpload#renameTo(java.io.File)} 可以将文件移动到目标位置，磁盘上的文件只需重命名，不经过堆内存
+ *
+ * 表单数据与请求的生命周期相同，请求处理结束后未移动的临时文件会被删除
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class FormData implements Closeable {
+    private final HttpPostRequestDecoder decoder;
+    private Map<String, List<String>> params;
+    private Map<String, List<FileUpload>> files;
+
+    /**
+     * 构造表单数据
+     * 传入完整请求时立即解码请求体；只有请求头时通过 {@link #offer(HttpContent)} 逐段提供
+     * @param httpRequest HTTP请求
+     * @param dataFactory 字段数据工厂
+     * @throws IllegalArgumentException 不是表单请求或请求体格式错误
+     */
+    public FormData(HttpRequest httpRequest, HttpDataFactory dataFactory) {
+        if (!isForm(httpRequest)) {
+            throw new IllegalArgumentException("Not a form request: " + httpRequest.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        }
+        try {
+            this.decoder = new HttpPostRequestDecoder(dataFactory, httpRequest);
+        } catch (HttpPostRequestDecoder.ErrorDataDecoderException e) {
+            throw new IllegalArgumentException("Invalid form data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 判断请求是否为表单请求
+     * @param httpRequest HTTP请求
+     * @return multipart/form-data 或 application/x-www-form-urlencoded 时返回true
+     */
+    public static boolean isForm(HttpRequest httpRequest) {
+        String contentType = httpRequest.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        return HttpPostRequestDecoder.isMultipart(httpRequest) || (contentType != null
+                && contentType.regionMatches(true, 0, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED.toString(),
+                        0, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED.length()));
+    }
+
+    /**
+     * 提供一段请求体（用于流式请求体）
+     * @param content 请求体分片，调用方仍需释放
+     * @throws IllegalArgumentException 请求体格式错误
+     */
+    public void offer(HttpContent content) {
+        try {
+            decoder.offer(content);
+        } catch (HttpPostRequestDecoder.ErrorDataDecoderException e) {
+            throw new IllegalArgumentException("Invalid form data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取表单字段值
+     * @param name 字段名
+     * @return 第一个值，不存在时返回null
+     */
+    public String getParam(String name) {
+        List<String> values = params().get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    /**
+     * 获取表单字段的所有值
+     * @param name 字段名
+     * @return 值列表，不存在时返回空列表
+     */
+    public List<String> getParams(String name) {
+        return params().getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 获取所有表单字段
+     * @return 字段名到值列表的映射
+     */
+    public Map<String, List<String>> getParamMap() {
+        return Collections.unmodifiableMap(params());
+    }
+
+    /**
+     * 获取上传的文件
+     * @param name 字段名
+     * @return 第一个文件，不存在时返回null
+     */
+    public FileUpload getFile(String name) {
+        List<FileUpload> uploads = files().get(name);
+        return uploads != null ? uploads.get(0) : null;
+    }
+
+    /**
+     * 获取同名字段上传的所有文件
+     * @param name 字段名
+     * @return 文件列表，不存在时返回空列表
+     */
+    public List<FileUpload> getFiles(String name) {
+        return files().getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 获取所有上传的文件
+     * @return 文件列表，按在请求体中出现的顺序排列
+     */
+    public List<FileUpload> getFiles() {
+        List<FileUpload> all = new ArrayList<>();
+        files().values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * 释放表单数据，删除未移动的临时文件
+     */
+    @Override
+    public void close() {
+        decoder.destroy();
+    }
+
+    private Map<String, List<String>> params() {
+        if (params == null) {
+            decode();
+        }
+        return params;
+    }
+
+    private Map<String, List<FileUpload>> files() {
+        if (files == null) {
+            decode();
+        }
+        return files;
+    }
+
+    /**
+     * 按字段类型整理解码结果，首次访问时执行
+     */
+    private void decode() {
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        Map<String, List<FileUpload>> uploads = new LinkedHashMap<>();
+        try {
+            for (InterfaceHttpData data : decoder.getBodyHttpDatas()) {
+                if (data.getHttpDataType() == InterfaceHttpData.HttpDataType.Attribute) {
+                    attributes.computeIfAbsent(data.getName(), k -> new ArrayList<>(1))
+                            .add(((Attribute) data).getValue());
+                } else if (data.getHttpDataType() == InterfaceHttpData.HttpDataType.FileUpload) {
+                    FileUpload upload = (FileUpload) data;
+                    if (upload.isCompleted()) {
+                        uploads.computeIfAbsent(data.getName(), k -> new ArrayList<>(1)).add(upload);
+                    }
+                }
+            }
+        } catch (HttpPostRequestDecoder.NotEnoughDataDecoderException e) {
+            throw new IllegalStateException("Form body has not been fully received", e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid form data: " + e.getMessage(), e);
+        }
+        params = attributes;
+        files = uploads;
+    }
+}
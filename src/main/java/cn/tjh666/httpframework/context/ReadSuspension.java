@@ -0,0 +1,84 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 通道级读取暂停协调
+ * 写背压、连接排空和流式请求体的需求量都会暂停从通道读取数据，各自独立地开始和结束。
+ * 直接设置 autoRead 时，一方恢复读取会覆盖另一方的暂停；本类按原因记录暂停，
+ * 所有原因都解除后才恢复读取
+ *
+ * 所有状态只在通道所属的事件循环线程上访问，无需同步。HTTP/2 每个流是独立的子通道，各自记录
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public final class ReadSuspension {
+    private static final AttributeKey<ReadSuspension> KEY = AttributeKey.valueOf(ReadSuspension.class.getName());
+
+    /**
+     * 暂停读取的原因
+     */
+    public enum Reason {
+        /** 待发送数据超过写缓冲区高水位 */
+        BACKPRESSURE,
+        /** 连接正在排空，不再读取新请求 */
+        DRAIN,
+        /** 流式请求体的订阅者暂时没有需求 */
+        DEMAND
+    }
+
+    private final Channel channel;
+    private int reasons;
+
+    private ReadSuspension(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 获取通道的读取暂停记录，首次访问时创建
+     * @param channel 通道
+     * @return 读取暂停记录
+     */
+    public static ReadSuspension of(Channel channel) {
+        ReadSuspension suspension = channel.attr(KEY).get();
+        if (suspension == null) {
+            ReadSuspension created = new ReadSuspension(channel);
+            suspension = channel.attr(KEY).setIfAbsent(created);
+            if (suspension == null) {
+                suspension = created;
+            }
+        }
+        return suspension;
+    }
+
+    /**
+     * 因指定原因暂停读取，在事件循环线程上调用
+     * @param reason 暂停原因
+     */
+    public void suspend(Reason reason) {
+        reasons |= 1 << reason.ordinal();
+        channel.config().setAutoRead(false);
+    }
+
+    /**
+     * 解除指定原因的暂停，没有其他原因时恢复读取，在事件循环线程上调用
+     * @param reason 暂停原因
+     */
+    public void resume(Reason reason) {
+        reasons &= ~(1 << reason.ordinal());
+        if (reasons == 0 && !channel.config().isAutoRead()) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * 是否因指定原因暂停读取
+     * @param reason 暂停原因
+     * @return 暂停中返回true
+     */
+    public boolean isSuspended(Reason reason) {
+        return (reasons & 1 << reason.ordinal()) != 0;
+    }
+}
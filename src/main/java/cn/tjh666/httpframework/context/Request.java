@@ -1,10 +1,18 @@
 package cn.tjh666.httpframework.context;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.FileUpload;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
 import io.netty.util.CharsetUtil;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,44 +20,87 @@ import java.util.Map;
 /**
  * HTTP请求上下文封装
  * 提供参数解析、路径参数、查询参数、请求体等功能
+ * 路径、查询参数和请求体均在首次访问时才解析并缓存，
+ * 只使用路径参数的请求除Netty消息本身外几乎不产生额外分配
+ * 
+ * 请求体的生命周期：底层缓冲区由框架持有，直到该请求的响应处理完成
+ * （包括 CompletionStage 完成）后释放。{@link #getBodyBuf()}、{@link #getBodyBuffer()}
+ * 和 {@link #getBodyStream()} 返回的视图只在此期间有效；需要在此之后继续使用时，
+ * 应调用 {@link #retainBodyBuf()} 获得独立引用并自行释放。表单数据及其临时文件同样在此时释放，
+ * 需要保留的上传文件应在处理期间通过 {@link FileUpload#renameTo(java.io.File)} 移走
  * 
  * @author Schrobit
  * @email admin@tjh666.cn
  */
 public class Request {
+    /**
+     * 默认表单数据工厂：小于16KB的字段保存在内存中，超过后写入临时文件
+     */
+    public static final HttpDataFactory DEFAULT_DATA_FACTORY = newDataFactory(DefaultHttpDataFactory.MINSIZE);
+
     private final FullHttpRequest httpRequest;
+    private final HttpDataFactory dataFactory;
     private final String uri;
     private final HttpMethod method;
-    private final Map<String, String> pathParams;
-    private final Map<String, List<String>> queryParams;
+    private Map<String, String> pathParams;
+    private QueryStringDecoder decoder;
+    private String path;
+    private Map<String, List<String>> queryParams;
     private String body;
+    private boolean bodyDecoded;
+    private StreamingBody streamingBody;
+    private FormData formData;
+    private Runnable releaseListener;
+
+    /**
+     * 创建表单数据工厂
+     * 临时文件不登记 {@link java.io.File#deleteOnExit()}：该列表在JVM退出前只增不减，长期运行的服务器中会持续占用内存。
+     * 临时文件在请求处理结束时由 {@link FormData#close()} 删除
+     * @param memoryThreshold 内存阈值（字节），超过后写入临时文件
+     * @return 表单数据工厂
+     */
+    public static DefaultHttpDataFactory newDataFactory(long memoryThreshold) {
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(memoryThreshold);
+        factory.setDeleteOnExit(false);
+        return factory;
+    }
 
     /**
      * 构造请求对象
      * @param httpRequest Netty HTTP请求对象
      */
     public Request(FullHttpRequest httpRequest) {
+        this(httpRequest, DEFAULT_DATA_FACTORY);
+    }
+
+    /**
+     * 构造请求对象
+     * @param httpRequest Netty HTTP请求对象
+     * @param dataFactory 表单数据工厂，决定上传文件保存在内存还是磁盘
+     */
+    public Request(FullHttpRequest httpRequest, HttpDataFactory dataFactory) {
         this.httpRequest = httpRequest;
+        this.dataFactory = dataFactory;
         this.uri = httpRequest.uri();
         this.method = httpRequest.method();
-        this.pathParams = new HashMap<>();
-        
-        // 解析查询参数
-        QueryStringDecoder decoder = new QueryStringDecoder(uri);
-        this.queryParams = decoder.parameters();
-        
-        // 解析请求体
-        if (httpRequest.content().readableBytes() > 0) {
-            this.body = httpRequest.content().toString(CharsetUtil.UTF_8);
-        }
     }
 
     /**
-     * 获取请求URI
-     * @return URI字符串
+     * 获取请求路径（已解码，不含查询字符串）
+     * @return 路径字符串
      */
     public String getUri() {
-        return new QueryStringDecoder(uri).path();
+        String p = path;
+        if (p == null) {
+            // 不含查询字符串、片段和转义字符的URI无需解码，直接作为路径使用
+            if (uri.indexOf('?') < 0 && uri.indexOf('#') < 0 && uri.indexOf('%') < 0) {
+                p = uri;
+            } else {
+                p = decoder().path();
+            }
+            path = p;
+        }
+        return p;
     }
 
     /**
@@ -66,7 +117,7 @@ public class Request {
      * @return 参数值
      */
     public String getPathParam(String name) {
-        return pathParams.get(name);
+        return pathParams != null ? pathParams.get(name) : null;
     }
 
     /**
@@ -75,6 +126,9 @@ public class Request {
      * @param value 参数值
      */
     public void setPathParam(String name, String value) {
+        if (pathParams == null) {
+            pathParams = new HashMap<>(4);
+        }
         pathParams.put(name, value);
     }
 
@@ -84,7 +138,7 @@ public class Request {
      * @return 参数值
      */
     public String getQueryParam(String name) {
-        List<String> values = queryParams.get(name);
+        List<String> values = queryParams().get(name);
         return values != null && !values.isEmpty() ? values.get(0) : null;
     }
 
@@ -94,7 +148,7 @@ public class Request {
      * @return 参数值列表
      */
     public List<String> getQueryParams(String name) {
-        return queryParams.get(name);
+        return queryParams().get(name);
     }
 
     /**
@@ -111,9 +165,109 @@ public class Request {
      * @return 请求体字符串
      */
     public String getBody() {
+        if (!bodyDecoded) {
+            ByteBuf content = httpRequest.content();
+            if (content.isReadable()) {
+                body = content.toString(CharsetUtil.UTF_8);
+            }
+            bodyDecoded = true;
+        }
         return body;
     }
 
+    /**
+     * 获取请求体的只读视图，不拷贝数据
+     * 返回的缓冲区与请求共享内存和引用计数，不需要也不应该释放，只在请求处理期间有效
+     * @return 只读ByteBuf，没有请求体时为空缓冲区
+     */
+    public ByteBuf getBodyBuf() {
+        return httpRequest.content().asReadOnly().slice();
+    }
+
+    /**
+     * 获取请求体的只读视图并增加引用计数
+     * 用于在请求处理完成后继续使用请求体，调用方必须在使用完毕后调用 release()
+     * @return 已保留的只读ByteBuf
+     */
+    public ByteBuf retainBodyBuf() {
+        return httpRequest.content().asReadOnly().retainedSlice();
+    }
+
+    /**
+     * 获取请求体的只读NIO视图
+     * 连续内存的请求体不拷贝数据；由多个分片组成的请求体会合并为一个新的缓冲区
+     * @return 只读ByteBuffer，只在请求处理期间有效
+     */
+    public ByteBuffer getBodyBuffer() {
+        ByteBuf content = httpRequest.content();
+        return content.nioBuffer(content.readerIndex(), content.readableBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取读取请求体的输入流，不拷贝数据，也不改变请求体的读索引
+     * @return 输入流，只在请求处理期间有效
+     */
+    public InputStream getBodyStream() {
+        return new ByteBufInputStream(httpRequest.content().duplicate());
+    }
+
+    /**
+     * 获取表单数据，首次访问时解析
+     * 支持 multipart/form-data 和 application/x-www-form-urlencoded
+     * @return 表单数据
+     * @throws IllegalArgumentException 不是表单请求或请求体格式错误
+     */
+    public FormData getForm() {
+        if (formData == null) {
+            formData = new FormData(httpRequest, dataFactory);
+        }
+        return formData;
+    }
+
+    /**
+     * 获取表单字段值
+     * @param name 字段名
+     * @return 字段值，不存在时返回null
+     * @throws IllegalArgumentException 不是表单请求或请求体格式错误
+     */
+    public String getFormParam(String name) {
+        return getForm().getParam(name);
+    }
+
+    /**
+     * 获取上传的文件
+     * @param name 字段名
+     * @return 文件，不存在时返回null
+     * @throws IllegalArgumentException 不是表单请求或请求体格式错误
+     */
+    public FileUpload getFormFile(String name) {
+        return getForm().getFile(name);
+    }
+
+    /**
+     * 获取表单数据工厂
+     * @return 表单数据工厂
+     */
+    public HttpDataFactory getDataFactory() {
+        return dataFactory;
+    }
+
+    /**
+     * 获取流式请求体
+     * @return 流式请求体，非 {@code @Streaming} 路由返回null
+     */
+    public StreamingBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * 设置流式请求体（由框架调用）
+     * @param streamingBody 流式请求体
+     */
+    public void setStreamingBody(StreamingBody streamingBody) {
+        this.streamingBody = streamingBody;
+    }
+
     /**
      * 获取原始Netty请求对象
      * @return FullHttpRequest对象
@@ -121,4 +275,52 @@ public class Request {
     public FullHttpRequest getHttpRequest() {
         return httpRequest;
     }
+
+    /**
+     * 请求处理结束，释放请求体、表单数据和流式请求体（由框架调用）
+     */
+    public void release() {
+        httpRequest.release();
+        if (formData != null) {
+            formData.close();
+        }
+        if (streamingBody != null) {
+            streamingBody.release();
+        }
+        if (releaseListener != null) {
+            releaseListener.run();
+        }
+    }
+
+    /**
+     * 设置请求处理结束时的回调，在 {@link #release()} 释放资源之后调用
+     * @param listener 回调
+     */
+    public void onRelease(Runnable listener) {
+        this.releaseListener = listener;
+    }
+
+    /**
+     * 获取查询参数表，首次访问时解析
+     * @return 参数表
+     */
+    private Map<String, List<String>> queryParams() {
+        Map<String, List<String>> params = queryParams;
+        if (params == null) {
+            params = uri.indexOf('?') < 0 ? Collections.emptyMap() : decoder().parameters();
+            queryParams = params;
+        }
+        return params;
+    }
+
+    /**
+     * 获取URI解码器，路径与查询参数共用同一个实例
+     * @return 解码器
+     */
+    private QueryStringDecoder decoder() {
+        if (decoder == null) {
+            decoder = new QueryStringDecoder(uri);
+        }
+        return decoder;
+    }
 }
\ No newline at end of file
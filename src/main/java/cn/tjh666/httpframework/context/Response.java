@@ -1,14 +1,25 @@
 package cn.tjh666.httpframework.context;
 
 import cn.tjh666.httpframework.json.JsonSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.*;
-import io.netty.util.CharsetUtil;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
 
 /**
  * HTTP响应上下文封装
  * 提供JSON序列化、文本响应等功能
+ * 可以在任意线程上使用，响应只会被发送一次，写操作在通道所属的事件循环线程上执行
+ * 同一连接上的响应按创建顺序（即请求顺序）写出，管道化请求的响应不会因异步完成而乱序
  * 
  * @author Schrobit
  * @email admin@tjh666.cn
@@ -16,16 +27,25 @@ import io.netty.util.CharsetUtil;
 public class Response {
     private final ChannelHandlerContext ctx;
     private final JsonSerializer jsonSerializer;
-    private boolean sent = false;
+    private final AtomicBoolean sent = new AtomicBoolean(false);
+    private final ResponseSequencer sequencer;
+    private final int sequence;
+    private UnaryOperator<FullHttpResponse> filter;
+    private Runnable streamListener;
+    private String etag;
+    private long lastModified = -1;
 
     /**
      * 构造响应对象
+     * 须在事件循环线程上按请求到达顺序构造，构造时领取该连接上的响应序号
      * @param ctx Netty通道上下文
      * @param jsonSerializer JSON序列化器
      */
     public Response(ChannelHandlerContext ctx, JsonSerializer jsonSerializer) {
         this.ctx = ctx;
         this.jsonSerializer = jsonSerializer;
+        this.sequencer = ResponseSequencer.of(ctx.channel());
+        this.sequence = sequencer.next();
     }
 
     /**
@@ -34,12 +54,13 @@ public class Response {
      * @param object 要序列化的对象
      */
     public void json(int status, Object object) {
-        if (sent) {
+        if (sent.get()) {
             throw new IllegalStateException("Response already sent");
         }
         
         try {
-            String json = jsonSerializer.serialize(object);
+            // 直接序列化到池化的ByteBuf中，不经过中间String
+            ByteBuf json = jsonSerializer.serialize(object, ctx.alloc());
             sendResponse(HttpResponseStatus.valueOf(status), json, "application/json; charset=UTF-8");
         } catch (Exception e) {
             sendError(500, "JSON serialization error: " + e.getMessage());
@@ -52,11 +73,11 @@ public class Response {
      * @param text 文本内容
      */
     public void text(int status, String text) {
-        if (sent) {
+        if (sent.get()) {
             throw new IllegalStateException("Response already sent");
         }
         
-        sendResponse(HttpResponseStatus.valueOf(status), text, "text/plain; charset=UTF-8");
+        sendResponse(HttpResponseStatus.valueOf(status), encode(text), "text/plain; charset=UTF-8");
     }
 
     /**
@@ -65,11 +86,11 @@ public class Response {
      * @param html HTML内容
      */
     public void html(int status, String html) {
-        if (sent) {
+        if (sent.get()) {
             throw new IllegalStateException("Response already sent");
         }
         
-        sendResponse(HttpResponseStatus.valueOf(status), html, "text/html; charset=UTF-8");
+        sendResponse(HttpResponseStatus.valueOf(status), encode(html), "text/html; charset=UTF-8");
     }
 
     /**
@@ -78,32 +99,193 @@ public class Response {
      * @param message 错误消息
      */
     public void sendError(int status, String message) {
-        if (sent) {
+        if (sent.get()) {
             return;
         }
         
-        sendResponse(HttpResponseStatus.valueOf(status), message, "text/plain; charset=UTF-8");
+        try {
+            sendResponse(HttpResponseStatus.valueOf(status), encode(message), "text/plain; charset=UTF-8");
+        } catch (IllegalStateException e) {
+            // 其他线程已抢先发送响应，错误响应直接丢弃
+        }
+    }
+
+    /**
+     * 开始流式响应
+     * 立即发送响应头（分块编码），之后通过返回的 {@link ResponseStream} 逐段写出响应体，
+     * 适合体积较大或边生成边发送的响应；写操作感知连接可写性，客户端读取较慢时不会无限缓存
+     * @param status HTTP状态码
+     * @param contentType 内容类型
+     * @return 流式响应，写完后必须调用 {@link ResponseStream#close()}
+     * @throws IllegalStateException 响应已发送
+     */
+    public ResponseStream stream(int status, String contentType) {
+        if (!sent.compareAndSet(false, true)) {
+            throw new IllegalStateException("Response already sent");
+        }
+
+        if (streamListener != null) {
+            streamListener.run();
+        }
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(status));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        HttpUtil.setTransferEncodingChunked(response, true);
+
+        sequencer.write(ctx, sequence, response, false, ctx.newPromise());
+        return new ResponseStream(ctx, sequencer, sequence);
+    }
+
+    /**
+     * 发送 100 Continue 临时响应，通知客户端继续发送请求体
+     * 与最终响应共用同一个序号，管道化连接上前面的响应写出之后才写出，不会插在它们中间
+     */
+    public void sendContinue() {
+        if (sent.get()) {
+            return;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE,
+            Unpooled.EMPTY_BUFFER);
+        sequencer.write(ctx, sequence, response, false, ctx.newPromise());
+    }
+
+    /**
+     * 发送已构造好的完整响应，例如缓存中的响应
+     * @param response 完整响应，所有权转移给本方法
+     * @throws IllegalStateException 响应已发送
+     */
+    public void send(FullHttpResponse response) {
+        if (!sent.compareAndSet(false, true)) {
+            response.release();
+            throw new IllegalStateException("Response already sent");
+        }
+        write(response, ctx.newPromise());
+    }
+
+    /**
+     * 发送已构造好的完整响应，写出后关闭连接
+     * 用于连接上无法继续读取后续请求的错误响应，例如无法跳过请求体的 413
+     * @param response 完整响应，所有权转移给本方法
+     * @throws IllegalStateException 响应已发送
+     */
+    public void sendAndClose(FullHttpResponse response) {
+        if (!sent.compareAndSet(false, true)) {
+            response.release();
+            throw new IllegalStateException("Response already sent");
+        }
+        ChannelPromise promise = ctx.newPromise();
+        promise.addListener(ChannelFutureListener.CLOSE);
+        write(response, promise);
+    }
+
+    /**
+     * 设置开始流式响应时的回调
+     * 流式响应不经过过滤器，依赖过滤器观察响应的组件通过该回调得知不会有完整响应
+     * @param listener 回调，在发送响应头之前调用
+     */
+    public void onStream(Runnable listener) {
+        this.streamListener = listener;
+    }
+
+    /**
+     * 设置响应的ETag，设置后框架不再根据响应体计算
+     * 须在发送响应之前调用
+     * @param etag 实体标签，没有引号时自动加上，如 {@code v42} 写出为 {@code "v42"}
+     * @return 当前响应对象
+     */
+    public Response etag(String etag) {
+        this.etag = etag.startsWith("\"") || etag.startsWith("W/\"") ? etag : "\"" + etag + "\"";
+        return this;
+    }
+
+    /**
+     * 设置响应的最后修改时间，框架据此处理 If-Modified-Since
+     * 须在发送响应之前调用
+     * @param epochMillis 毫秒时间戳（HTTP日期精确到秒）
+     * @return 当前响应对象
+     */
+    public Response lastModified(long epochMillis) {
+        this.lastModified = epochMillis;
+        return this;
+    }
+
+    /**
+     * 添加响应过滤器
+     * 完整响应写出前依次经过所有过滤器，过滤器可以修改响应头，或者释放原响应并返回替代的响应；
+     * 流式响应不经过过滤器。须在响应发送前、由分发响应的线程添加
+     * @param filter 响应过滤器
+     */
+    public void addFilter(UnaryOperator<FullHttpResponse> filter) {
+        UnaryOperator<FullHttpResponse> previous = this.filter;
+        this.filter = previous == null ? filter : r -> filter.apply(previous.apply(r));
+    }
+
+    /**
+     * 将文本按UTF-8直接编码到通道分配器提供的池化缓冲区
+     * @param text 文本内容
+     * @return 编码后的缓冲区
+     */
+    private ByteBuf encode(String text) {
+        return text == null || text.isEmpty()
+            ? Unpooled.EMPTY_BUFFER
+            : ByteBufUtil.writeUtf8(ctx.alloc(), text);
     }
 
     /**
      * 发送响应的内部方法
      * @param status HTTP状态
-     * @param content 响应内容
+     * @param content 已编码的响应内容，所有权转移给本方法
      * @param contentType 内容类型
      */
-    private void sendResponse(HttpResponseStatus status, String content, String contentType) {
+    private void sendResponse(HttpResponseStatus status, ByteBuf content, String contentType) {
+        if (!sent.compareAndSet(false, true)) {
+            content.release();
+            throw new IllegalStateException("Response already sent");
+        }
+        
         FullHttpResponse response = new DefaultFullHttpResponse(
             HttpVersion.HTTP_1_1,
             status,
-            Unpooled.copiedBuffer(content, CharsetUtil.UTF_8)
+            content
         );
         
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-        
-        ctx.writeAndFlush(response);
-        sent = true;
+        write(response, ctx.newPromise());
+    }
+
+    /**
+     * 补充处理器设置的ETag和最后修改时间，经过滤器后写出完整响应
+     * @param response 完整响应
+     * @param promise 写出结果
+     */
+    private void write(FullHttpResponse response, ChannelPromise promise) {
+        // 校验器只描述成功响应的内容，错误响应不携带
+        if (response.status().codeClass() == HttpStatusClass.SUCCESS) {
+            if (etag != null && !response.headers().contains(HttpHeaderNames.ETAG)) {
+                response.headers().set(HttpHeaderNames.ETAG, etag);
+            }
+            if (lastModified >= 0 && !response.headers().contains(HttpHeaderNames.LAST_MODIFIED)) {
+                response.headers().set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+            }
+        }
+        if (filter != null) {
+            response = filter.apply(response);
+        }
+        // 在非事件循环线程调用时，写操作提交到通道所属的事件循环执行；
+        // 前面的响应未完成时暂存，刷新由排序器合并
+        sequencer.write(ctx, sequence, response, true, promise);
+    }
+
+    /**
+     * 连接上是否有尚未写完的响应
+     * 此时新建的响应只能排在它们之后写出，在事件循环线程上调用
+     * @param channel 连接通道
+     * @return 存在已领取序号但未写完的响应时返回true
+     */
+    public static boolean hasPendingResponses(Channel channel) {
+        return ResponseSequencer.of(channel).hasPending();
     }
 
     /**
@@ -111,6 +293,6 @@ public class Response {
      * @return 是否已发送
      */
     public boolean isSent() {
-        return sent;
+        return sent.get();
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+
+/**
+ * 连接级响应排序器
+ * HTTP/1.1 管道化（pipelining）要求响应按请求顺序返回，而控制器可能在工作线程上异步、乱序完成。
+ * 每个响应创建时按请求顺序领取序号，先完成的后续响应暂存，直到前面的响应都写出后再依次写出，
+ * 一批连续的响应只刷新一次
+ *
+ * 流式响应由多个消息组成，写出最后一个消息之前一直占用当前序号，后续响应排在它之后
+ *
+ * 所有状态只在通道所属的事件循环线程上访问，无需同步。HTTP/2 每个流是独立的子通道，各自排序
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class ResponseSequencer {
+    private static final AttributeKey<ResponseSequencer> KEY = AttributeKey.valueOf(ResponseSequencer.class.getName());
+
+    private final IntObjectMap<ArrayDeque<Pending>> pending = new IntObjectHashMap<>();
+    private int nextSequence;
+    private int nextToWrite;
+    private boolean closed;
+
+    private ResponseSequencer(Channel channel) {
+        channel.closeFuture().addListener(future -> close());
+    }
+
+    /**
+     * 获取通道的排序器，首次访问时创建
+     * @param channel 连接通道
+     * @return 排序器
+     */
+    static ResponseSequencer of(Channel channel) {
+        ResponseSequencer sequencer = channel.attr(KEY).get();
+        if (sequencer == null) {
+            ResponseSequencer created = new ResponseSequencer(channel);
+            sequencer = channel.attr(KEY).setIfAbsent(created);
+            if (sequencer == null) {
+                sequencer = created;
+            }
+        }
+        return sequencer;
+    }
+
+    /**
+     * 领取下一个响应序号，须按请求到达的顺序调用（即在事件循环线程上读取请求时）
+     * @return 序号
+     */
+    int next() {
+        return nextSequence++;
+    }
+
+    /**
+     * 是否有已领取序号但尚未写完的响应，须在事件循环线程上调用
+     * @return 存在时返回true
+     */
+    boolean hasPending() {
+        return nextToWrite != nextSequence;
+    }
+
+    /**
+     * 按序号写出完整响应，可在任意线程调用
+     * @param ctx 写出响应的处理器上下文
+     * @param sequence 响应序号
+     * @param message 响应消息，所有权转移给本方法
+     */
+    void write(ChannelHandlerContext ctx, int sequence, Object message) {
+        write(ctx, sequence, message, true, ctx.newPromise());
+    }
+
+    /**
+     * 按序号写出响应的一部分，可在任意线程调用
+     * @param ctx 写出响应的处理器上下文
+     * @param sequence 响应序号
+     * @param message 响应消息，所有权转移给本方法
+     * @param last 是否为该响应的最后一个消息
+     * @param promise 写出结果
+     * @return 消息已立即写入通道时返回true；提交到事件循环或暂存等待前面的响应时返回false
+     */
+    boolean write(ChannelHandlerContext ctx, int sequence, Object message, boolean last, ChannelPromise promise) {
+        if (!ctx.executor().inEventLoop()) {
+            ctx.executor().execute(() -> write(ctx, sequence, message, last, promise));
+            return false;
+        }
+        if (closed) {
+            ReferenceCountUtil.release(message);
+            promise.tryFailure(new ClosedChannelException());
+            return false;
+        }
+        if (sequence != nextToWrite) {
+            // 前面还有未完成的响应，先暂存
+            pending.computeIfAbsent(sequence, k -> new ArrayDeque<>(1)).add(new Pending(ctx, message, last, promise));
+            return false;
+        }
+
+        ctx.write(message, promise);
+        if (last) {
+            nextToWrite++;
+            drainPending();
+        }
+        ctx.flush();
+        return true;
+    }
+
+    /**
+     * 当前响应写完后，依次写出已暂存的后续响应，遇到尚未写完的流式响应时停止
+     */
+    private void drainPending() {
+        ArrayDeque<Pending> queue;
+        while ((queue = pending.remove(nextToWrite)) != null) {
+            boolean finished = false;
+            for (Pending p : queue) {
+                p.ctx.write(p.message, p.promise);
+                finished = p.last;
+            }
+            if (!finished) {
+                return;
+            }
+            nextToWrite++;
+        }
+    }
+
+    /**
+     * 连接关闭后释放暂存的响应
+     */
+    private void close() {
+        closed = true;
+        for (ArrayDeque<Pending> queue : pending.values()) {
+            for (Pending p : queue) {
+                ReferenceCountUtil.release(p.message);
+                p.promise.tryFailure(new ClosedChannelException());
+            }
+        }
+        pending.clear();
+    }
+
+    private static final class Pending {
+        final ChannelHandlerContext ctx;
+        final Object message;
+        final boolean last;
+        final ChannelPromise promise;
+
+        Pending(ChannelHandlerContext ctx, Object message, boolean last, ChannelPromise promise) {
+            this.ctx = ctx;
+            this.message = message;
+            this.last = last;
+            this.promise = promise;
+        }
+    }
+}
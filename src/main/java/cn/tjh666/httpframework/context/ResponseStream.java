@@ -0,0 +1,147 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 流式响应
+ * 通过 {@link Response#stream(int, String)} 创建，响应头发送后以分块编码（HTTP/2 为DATA帧）逐段写出响应体
+ *
+ * 写操作感知连接的可写性：{@link #write(ByteBuf)} 返回的 CompletionStage 在连接仍可写时立即完成，
+ * 当待发送数据超过写缓冲区高水位（客户端读取较慢）时，直到这段数据写入套接字后才完成。
+ * 生产者等待上一次写完成后再写下一段，即可把服务器缓存的响应数据限制在水位附近：
+ * <pre>
+ * stream.write(chunk1).thenCompose(v -&gt; stream.write(chunk2)).thenCompose(v -&gt; stream.close());
+ * </pre>
+ *
+ * 可以在任意线程上使用，写操作在通道所属的事件循环线程上按调用顺序执行
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ResponseStream {
+    private final ChannelHandlerContext ctx;
+    private final ResponseSequencer sequencer;
+    private final int sequence;
+    private volatile boolean closed;
+
+    ResponseStream(ChannelHandlerContext ctx, ResponseSequencer sequencer, int sequence) {
+        this.ctx = ctx;
+        this.sequencer = sequencer;
+        this.sequence = sequence;
+    }
+
+    /**
+     * 获取缓冲区分配器，用于分配要写出的数据
+     * @return 通道的分配器
+     */
+    public ByteBufAllocator alloc() {
+        return ctx.alloc();
+    }
+
+    /**
+     * 连接当前是否可写（待发送数据低于写缓冲区高水位）
+     * @return 可写返回true
+     */
+    public boolean isWritable() {
+        return ctx.channel().isWritable();
+    }
+
+    /**
+     * 写出一段响应体
+     * @param chunk 数据，所有权转移给本方法
+     * @return 可以继续写时完成；写失败（例如连接已关闭）时异常完成
+     * @throws IllegalStateException 流已关闭
+     */
+    public CompletionStage<Void> write(ByteBuf chunk) {
+        if (closed) {
+            chunk.release();
+            throw new IllegalStateException("Response stream already closed");
+        }
+        return send(new DefaultHttpContent(chunk));
+    }
+
+    /**
+     * 写出一段响应体
+     * @param chunk 数据
+     * @return 可以继续写时完成；写失败（例如连接已关闭）时异常完成
+     * @throws IllegalStateException 流已关闭
+     */
+    public CompletionStage<Void> write(byte[] chunk) {
+        return write(Unpooled.wrappedBuffer(chunk));
+    }
+
+    /**
+     * 结束响应体
+     * 重复调用时直接返回已完成的结果
+     * @return 所有数据写入套接字后完成
+     */
+    public CompletionStage<Void> close() {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        closed = true;
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ChannelPromise promise = ctx.newPromise();
+        promise.addListener(f -> complete(result, f.cause()));
+        sequencer.write(ctx, sequence, LastHttpContent.EMPTY_LAST_CONTENT, true, promise);
+        return result;
+    }
+
+    /**
+     * 中止响应：响应头已经发出，无法再返回错误状态，只能关闭连接
+     */
+    public void abort() {
+        closed = true;
+        ctx.channel().close();
+    }
+
+    /**
+     * 是否已结束或中止
+     * @return 已结束返回true
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private CompletionStage<Void> send(HttpContent content) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ChannelPromise promise = ctx.newPromise();
+        if (ctx.executor().inEventLoop()) {
+            send(content, promise, result);
+        } else {
+            ctx.executor().execute(() -> send(content, promise, result));
+        }
+        return result;
+    }
+
+    /**
+     * 在事件循环线程上写出数据，并根据写出后的可写性决定何时完成
+     */
+    private void send(HttpContent content, ChannelPromise promise, CompletableFuture<Void> result) {
+        if (sequencer.write(ctx, sequence, content, false, promise) && ctx.channel().isWritable()) {
+            // 待发送数据未超过高水位，调用方可以立即继续写
+            result.complete(null);
+        }
+        // 否则（连接不可写或前面的响应尚未写完）等这段数据写入套接字后再继续；写失败时标记流已关闭
+        promise.addListener(f -> complete(result, f.cause()));
+    }
+
+    private void complete(CompletableFuture<Void> result, Throwable cause) {
+        if (cause == null) {
+            result.complete(null);
+        } else {
+            closed = true;
+            result.completeExceptionally(cause);
+        }
+    }
+}
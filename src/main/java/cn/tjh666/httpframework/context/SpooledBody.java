@@ -0,0 +1,286 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * 已接收完毕的流式请求体
+ * 由 {@link StreamingBody#spool(long)} 生成：小于内存阈值时保存在内存中（直接引用接收到的缓冲区，不复制），
+ * 超过阈值后写入临时文件，写入使用异步文件通道，每写完一个分片才向连接请求下一个
+ *
+ * 使用完毕后必须调用 {@link #close()}；{@link #moveTo(Path)} 之后临时文件归调用方所有
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class SpooledBody implements Closeable {
+    private final CompositeByteBuf content;
+    private final Path file;
+    private final long size;
+    private boolean closed;
+    private boolean moved;
+
+    private SpooledBody(CompositeByteBuf content, Path file, long size) {
+        this.content = content;
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * 请求体是否保存在内存中
+     * @return 在内存中返回true，在临时文件中返回false
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * 获取请求体大小
+     * @return 字节数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 获取内存中的请求体（只读视图，不复制）
+     * @return 请求体缓冲区
+     * @throws IllegalStateException 请求体已写入临时文件
+     */
+    public ByteBuf content() {
+        if (file != null) {
+            throw new IllegalStateException("Body was spooled to " + file);
+        }
+        return content.asReadOnly();
+    }
+
+    /**
+     * 获取临时文件路径
+     * @return 临时文件路径，请求体在内存中时返回null
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * 将请求体保存到目标位置
+     * 临时文件通过重命名移动，同一文件系统内不复制数据
+     * @param target 目标路径，已存在时覆盖
+     * @throws IOException 写入失败
+     */
+    public void moveTo(Path target) throws IOException {
+        if (file != null) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int index = content.readerIndex();
+            int end = content.writerIndex();
+            while (index < end) {
+                index += content.getBytes(index, channel, index - content.readerIndex(), end - index);
+            }
+        }
+    }
+
+    /**
+     * 打开请求体输入流
+     * @return 输入流
+     * @throws IOException 打开临时文件失败
+     */
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return Files.newInputStream(file);
+        }
+        return new ByteBufInputStream(content.duplicate());
+    }
+
+    /**
+     * 释放内存缓冲区，删除未移动的临时文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (file == null) {
+            content.release();
+        } else if (!moved) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 请求体收集器
+     * 作为 {@link StreamingBody} 的订阅者，每次只请求一个分片
+     */
+    static final class Spooler implements Flow.Subscriber<ByteBuf> {
+        private final long memoryThreshold;
+        private final Path tempDir;
+        private final CompletableFuture<SpooledBody> result = new CompletableFuture<>();
+        private CompositeByteBuf memory = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        private Flow.Subscription subscription;
+        private AsynchronousFileChannel channel;
+        private Path file;
+        private long size;
+        private boolean writing;
+        private boolean completePending;
+        private boolean failed;
+
+        Spooler(long memoryThreshold, Path tempDir) {
+            this.memoryThreshold = memoryThreshold;
+            this.tempDir = tempDir;
+        }
+
+        CompletionStage<SpooledBody> result() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public synchronized void onNext(ByteBuf buf) {
+            if (failed) {
+                buf.release();
+                return;
+            }
+            int length = buf.readableBytes();
+            size += length;
+            if (channel == null && size <= memoryThreshold) {
+                memory.addComponent(true, buf);
+                subscription.request(1);
+                return;
+            }
+            try {
+                ByteBuf data = buf;
+                if (channel == null) {
+                    // 超过内存阈值，已缓存的内容和当前分片一起写入临时文件
+                    file = tempDir != null
+                        ? Files.createTempFile(tempDir, "upload-", ".tmp")
+                        : Files.createTempFile("upload-", ".tmp");
+                    channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE);
+                    memory.addComponent(true, buf);
+                    data = memory;
+                    memory = null;
+                }
+                writing = true;
+                write(data, data.nioBuffer(), size - data.readableBytes());
+            } catch (IOException e) {
+                buf.release();
+                fail(e);
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (writing) {
+                completePending = true;
+            } else {
+                finish();
+            }
+        }
+
+        /**
+         * 异步写入一个分片，写完后释放并请求下一个分片
+         */
+        private void write(ByteBuf data, ByteBuffer nio, long position) {
+            channel.write(nio, position, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer written, Void attachment) {
+                    if (nio.hasRemaining()) {
+                        write(data, nio, position + written);
+                        return;
+                    }
+                    data.release();
+                    written();
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    data.release();
+                    synchronized (Spooler.this) {
+                        fail(exc);
+                    }
+                    subscription.cancel();
+                }
+            });
+        }
+
+        private synchronized void written() {
+            writing = false;
+            if (failed) {
+                return;
+            }
+            if (completePending) {
+                finish();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        private void finish() {
+            if (failed) {
+                return;
+            }
+            if (channel == null) {
+                result.complete(new SpooledBody(memory, null, size));
+                memory = null;
+                return;
+            }
+            try {
+                channel.close();
+                result.complete(new SpooledBody(null, file, size));
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable cause) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            if (memory != null) {
+                memory.release();
+                memory = null;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // 临时文件清理失败不影响错误传递
+                }
+            }
+            result.completeExceptionally(cause);
+        }
+    }
+}
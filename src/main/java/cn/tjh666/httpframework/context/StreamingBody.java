@@ -0,0 +1,322 @@
+package cn.tjh666.httpframework.context;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * 流式请求体
+ * 用于 {@code @Streaming} 路由，请求体不经过聚合，按到达顺序以 {@link ByteBuf} 分片推送给订阅者
+ *
+ * 实现 {@link Flow.Publisher}，只允许一个订阅者，遵循订阅者的需求量（request(n)）：
+ * 没有需求时暂停从连接读取数据，因此无论请求体多大，内存中最多只缓存一次读取的数据
+ *
+ * 生命周期：onNext 收到的每个 ByteBuf 归订阅者所有，使用完毕后必须调用 release()；
+ * 所有信号都在通道所属的事件循环线程上发出，订阅者不应在回调中阻塞。
+ * 请求处理完成时如果仍未订阅，剩余的请求体会被丢弃
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class StreamingBody implements Flow.Publisher<ByteBuf> {
+    private static final String RELEASED_MESSAGE = "Request processing finished before the body was received";
+
+    private final ChannelHandlerContext ctx;
+    private final EventExecutor eventLoop;
+    private final HttpRequest head;
+    private final HttpDataFactory dataFactory;
+    private final ArrayDeque<ByteBuf> pending = new ArrayDeque<>();
+    private Flow.Subscriber<? super ByteBuf> subscriber;
+    private long demand;
+    private long receivedBytes;
+    private boolean completed;
+    private Throwable failure;
+    private boolean terminated;
+    private boolean discarding;
+    private boolean draining;
+    private boolean released;
+    private FormData formData;
+
+    /**
+     * 构造流式请求体（由框架调用）
+     * @param ctx 通道上下文
+     * @param head 请求头
+     * @param dataFactory 表单数据工厂，用于 {@link #form()}
+     */
+    public StreamingBody(ChannelHandlerContext ctx, HttpRequest head, HttpDataFactory dataFactory) {
+        this.ctx = ctx;
+        this.eventLoop = ctx.executor();
+        this.head = new DefaultHttpRequest(head.protocolVersion(), head.method(), head.uri(), head.headers());
+        this.dataFactory = dataFactory;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuf> s) {
+        runOnEventLoop(() -> {
+            if (subscriber != null || discarding) {
+                s.onSubscribe(new BodySubscription(null));
+                s.onError(new IllegalStateException("Request body can only be subscribed once"));
+                return;
+            }
+            subscriber = s;
+            s.onSubscribe(new BodySubscription(s));
+            drain();
+        });
+    }
+
+    /**
+     * 将请求体收集到内存，超过阈值后转存到临时文件
+     * @param memoryThreshold 内存阈值（字节）
+     * @return 请求体接收完毕后完成
+     */
+    public CompletionStage<SpooledBody> spool(long memoryThreshold) {
+        return spool(memoryThreshold, null);
+    }
+
+    /**
+     * 将请求体收集到内存，超过阈值后转存到指定目录下的临时文件
+     * 临时文件与目标位置在同一文件系统时，{@link SpooledBody#moveTo(Path)} 只需一次重命名
+     * @param memoryThreshold 内存阈值（字节）
+     * @param tempDir 临时文件目录，为null时使用系统临时目录
+     * @return 请求体接收完毕后完成
+     */
+    public CompletionStage<SpooledBody> spool(long memoryThreshold, Path tempDir) {
+        SpooledBody.Spooler spooler = new SpooledBody.Spooler(memoryThreshold, tempDir);
+        subscribe(spooler);
+        return spooler.result();
+    }
+
+    /**
+     * 将请求体按表单解码，文件字段边接收边写入磁盘（超过数据工厂的内存阈值时）
+     * 表单数据在请求处理结束后释放，需要保留的上传文件应在此之前移走；
+     * 请求处理在表单接收完毕前结束时（例如控制器同步返回），返回的结果以 {@link IllegalStateException} 失败
+     * @return 请求体接收完毕后完成
+     * @throws IllegalArgumentException 不是表单请求
+     */
+    public CompletionStage<FormData> form() {
+        FormData form = new FormData(head, dataFactory);
+        CompletableFuture<FormData> result = new CompletableFuture<>();
+        subscribe(new Flow.Subscriber<ByteBuf>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                if (released) {
+                    // 请求已处理结束，丢弃请求体
+                    subscription.cancel();
+                    form.close();
+                    result.completeExceptionally(new IllegalStateException(RELEASED_MESSAGE));
+                    return;
+                }
+                formData = form;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuf buf) {
+                DefaultHttpContent content = new DefaultHttpContent(buf);
+                try {
+                    form.offer(content);
+                } catch (IllegalArgumentException e) {
+                    subscription.cancel();
+                    result.completeExceptionally(e);
+                    return;
+                } finally {
+                    content.release();
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                try {
+                    form.offer(LastHttpContent.EMPTY_LAST_CONTENT);
+                    result.complete(form);
+                } catch (IllegalArgumentException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 获取已接收的请求体字节数
+     * @return 字节数
+     */
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * 接收一个请求体分片（由框架在事件循环线程上调用）
+     * 方法会保留分片内容的一次引用，调用方仍需释放传入的消息
+     * @param content HTTP内容分片
+     */
+    public void onContent(HttpContent content) {
+        ByteBuf data = content.content();
+        receivedBytes += data.readableBytes();
+        if (!discarding && data.isReadable()) {
+            pending.add(data.retain());
+        }
+        if (content instanceof LastHttpContent) {
+            completed = true;
+        }
+        drain();
+        if (!pending.isEmpty()) {
+            // 订阅者暂时没有需求，停止读取直到再次请求
+            ReadSuspension.of(ctx.channel()).suspend(ReadSuspension.Reason.DEMAND);
+        }
+    }
+
+    /**
+     * 请求体接收失败（由框架在事件循环线程上调用），例如连接中断
+     * @param cause 失败原因
+     */
+    public void onError(Throwable cause) {
+        if (!completed && failure == null) {
+            failure = cause;
+            drain();
+        }
+    }
+
+    /**
+     * 请求处理结束时调用（由框架调用）：如果仍没有订阅者，丢弃剩余的请求体；释放表单数据
+     */
+    public void release() {
+        runOnEventLoop(() -> {
+            released = true;
+            if (subscriber == null) {
+                discard();
+            }
+            if (formData != null) {
+                formData.close();
+                formData = null;
+                if (!terminated) {
+                    // 表单尚未接收完毕，通知订阅者失败，form() 返回的结果不会一直等待
+                    terminated = true;
+                    subscriber.onError(new IllegalStateException(RELEASED_MESSAGE));
+                }
+                discard();
+            }
+        });
+    }
+
+    /**
+     * 按需求量向订阅者推送分片，并在适当时候发送终止信号
+     */
+    private void drain() {
+        if (draining || subscriber == null || terminated) {
+            return;
+        }
+        draining = true;
+        try {
+            while (demand > 0 && !pending.isEmpty() && !terminated) {
+                demand--;
+                subscriber.onNext(pending.poll());
+            }
+            if (terminated || !pending.isEmpty()) {
+                return;
+            }
+            if (completed) {
+                terminated = true;
+                resumeReading();
+                subscriber.onComplete();
+            } else if (failure != null) {
+                terminated = true;
+                subscriber.onError(failure);
+            } else if (demand > 0) {
+                resumeReading();
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * 丢弃已缓存和后续到达的请求体
+     */
+    private void discard() {
+        discarding = true;
+        terminated = true;
+        ByteBuf buf;
+        while ((buf = pending.poll()) != null) {
+            buf.release();
+        }
+        resumeReading();
+    }
+
+    private void resumeReading() {
+        // 连接因写背压或排空暂停时保持暂停，由连接统计处理器在原因解除后恢复读取
+        ReadSuspension.of(ctx.channel()).resume(ReadSuspension.Reason.DEMAND);
+    }
+
+    private void runOnEventLoop(Runnable task) {
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            eventLoop.execute(task);
+        }
+    }
+
+    /**
+     * 订阅句柄
+     */
+    private final class BodySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuf> owner;
+
+        BodySubscription(Flow.Subscriber<? super ByteBuf> owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void request(long n) {
+            if (owner == null) {
+                return;
+            }
+            runOnEventLoop(() -> {
+                if (subscriber != owner || terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    terminated = true;
+                    owner.onError(new IllegalArgumentException("Non-positive request: " + n));
+                    discard();
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                drain();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            if (owner == null) {
+                return;
+            }
+            runOnEventLoop(() -> {
+                if (subscriber == owner) {
+                    discard();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.context.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 条件请求处理
+ * 为GET和HEAD请求的200响应生成ETag（对编码后的响应体计算XXH64哈希），处理器已设置ETag时沿用；
+ * 请求的 If-None-Match 与ETag匹配，或没有 If-None-Match 且 If-Modified-Since 不早于 Last-Modified 时，
+ * 以不含响应体的304响应代替
+ *
+ * 路由标注 {@link cn.tjh666.httpframework.annotation.Versioned} 时，由版本方法的返回值构造ETag，
+ * 在调用路由方法之前完成比较，匹配时不调用路由方法
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ConditionalRequests {
+    /**
+     * 304响应保留的响应头，其余（如内容类型、长度）描述的是未发送的响应体
+     */
+    private static final AsciiString[] NOT_MODIFIED_HEADERS = {
+        HttpHeaderNames.ETAG, HttpHeaderNames.LAST_MODIFIED, HttpHeaderNames.CACHE_CONTROL,
+        HttpHeaderNames.EXPIRES, HttpHeaderNames.VARY, HttpHeaderNames.CONTENT_LOCATION,
+        HttpHeaderNames.DATE, HttpHeaderNames.CONNECTION
+    };
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder skippedInvocations = new LongAdder();
+
+    /**
+     * 请求是否适用条件处理
+     * @param request 请求对象
+     * @return GET或HEAD请求时返回true
+     */
+    public boolean applies(Request request) {
+        HttpMethod method = request.getMethod();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+    }
+
+    /**
+     * 把版本方法的返回值转换为ETag
+     * @param version 版本
+     * @return 带引号的强ETag
+     */
+    public static String versionTag(Object version) {
+        String token = version.toString();
+        return "\"" + (token.indexOf('"') < 0 ? token : token.replace("\"", "")) + "\"";
+    }
+
+    /**
+     * 版本ETag与请求的 If-None-Match 匹配时，调用方直接发送 {@link #notModified(String)}
+     * @param request 请求对象
+     * @param etag ETag
+     * @return 匹配时返回true
+     */
+    public boolean matches(Request request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaderNames.IF_NONE_MATCH.toString());
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, etag)) {
+            skippedInvocations.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 构造只包含ETag的304响应，用于跳过调用的版本匹配
+     * @param etag ETag
+     * @return 304响应
+     */
+    public FullHttpResponse notModified(String etag) {
+        notModified.increment();
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
+        response.headers().set(HttpHeaderNames.ETAG, etag);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        return response;
+    }
+
+    /**
+     * 为200响应补充ETag，处理器已设置时不变
+     * @param response 完整响应
+     * @return 同一响应
+     */
+    public FullHttpResponse tag(FullHttpResponse response) {
+        if (HttpResponseStatus.OK.equals(response.status()) && !response.headers().contains(HttpHeaderNames.ETAG)) {
+            response.headers().set(HttpHeaderNames.ETAG, hashTag(response.content()));
+        }
+        return response;
+    }
+
+    /**
+     * 按请求的条件头判断，满足时释放原响应，返回304响应
+     * @param request 请求对象
+     * @param response 完整响应
+     * @return 原响应或304响应
+     */
+    public FullHttpResponse evaluate(Request request, FullHttpResponse response) {
+        if (!HttpResponseStatus.OK.equals(response.status()) || !isNotModified(request, response.headers())) {
+            return response;
+        }
+        notModified.increment();
+        FullHttpResponse result = new DefaultFullHttpResponse(
+                response.protocolVersion(), HttpResponseStatus.NOT_MODIFIED);
+        for (AsciiString name : NOT_MODIFIED_HEADERS) {
+            String value = response.headers().get(name);
+            if (value != null) {
+                result.headers().set(name, value);
+            }
+        }
+        response.release();
+        return result;
+    }
+
+    private boolean isNotModified(Request request, HttpHeaders headers) {
+        String ifNoneMatch = request.getHeader(HttpHeaderNames.IF_NONE_MATCH.toString());
+        if (ifNoneMatch != null) {
+            String etag = headers.get(HttpHeaderNames.ETAG);
+            return etag != null && matchesAny(ifNoneMatch, etag);
+        }
+        // 请求带 If-None-Match 时忽略 If-Modified-Since
+        String ifModifiedSince = request.getHeader(HttpHeaderNames.IF_MODIFIED_SINCE.toString());
+        String lastModified = headers.get(HttpHeaderNames.LAST_MODIFIED);
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+        Date modified = DateFormatter.parseHttpDate(lastModified);
+        return since != null && modified != null && !modified.after(since);
+    }
+
+    /**
+     * If-None-Match 的弱比较：列表中任一标签（忽略 W/ 前缀）与ETag相同，或为 *
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        String opaque = opaque(etag);
+        int start = 0;
+        int length = ifNoneMatch.length();
+        while (start < length) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            String candidate = ifNoneMatch.substring(start, end).trim();
+            if ("*".equals(candidate) || opaque(candidate).equals(opaque)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 由响应体的XXH64哈希构造强ETag
+     * @param content 响应体
+     * @return 带引号的ETag
+     */
+    static String hashTag(ByteBuf content) {
+        String hex = Long.toHexString(xxh64(content, content.readerIndex(), content.readableBytes()));
+        return "\"" + "0000000000000000".substring(hex.length()) + hex + "\"";
+    }
+
+    /**
+     * XXH64哈希（种子为0），按小端读取缓冲区，不复制数据
+     */
+    static long xxh64(ByteBuf buf, int offset, int length) {
+        int end = offset + length;
+        int index = offset;
+        long hash;
+        if (length >= 32) {
+            long v1 = PRIME64_1 + PRIME64_2;
+            long v2 = PRIME64_2;
+            long v3 = 0;
+            long v4 = -PRIME64_1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, buf.getLongLE(index));
+                v2 = round(v2, buf.getLongLE(index + 8));
+                v3 = round(v3, buf.getLongLE(index + 16));
+                v4 = round(v4, buf.getLongLE(index + 24));
+                index += 32;
+            } while (index <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+        hash += length;
+
+        while (index + 8 <= end) {
+            hash ^= round(0, buf.getLongLE(index));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            index += 8;
+        }
+        if (index + 4 <= end) {
+            hash ^= (buf.getIntLE(index) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            index += 4;
+        }
+        while (index < end) {
+            hash ^= (buf.getByte(index) & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            index++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    /**
+     * 获取返回304的次数
+     * @return 次数
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * 获取因版本匹配而未调用路由方法的次数
+     * @return 次数
+     */
+    public long getSkippedInvocations() {
+        return skippedInvocations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "notModified=" + getNotModified() + " skippedInvocations=" + getSkippedInvocations();
+    }
+}
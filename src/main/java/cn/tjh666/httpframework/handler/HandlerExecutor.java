@@ -0,0 +1,130 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.annotation.ExecutionMode;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器执行器
+ * 根据路由的执行模式选择运行控制器方法的线程：
+ * 事件循环线程、有界工作线程池或虚拟线程
+ * 
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class HandlerExecutor {
+    private final ExecutionMode defaultMode;
+    private final int workerThreads;
+    private final int queueCapacity;
+    private volatile ExecutorService workerPool;
+    private volatile ExecutorService virtualExecutor;
+    private volatile boolean virtualUnavailable;
+
+    /**
+     * 构造控制器执行器
+     * @param defaultMode 默认执行模式，路由未指定时使用
+     * @param workerThreads 工作线程数
+     * @param queueCapacity 工作线程池等待队列容量
+     */
+    public HandlerExecutor(ExecutionMode defaultMode, int workerThreads, int queueCapacity) {
+        this.defaultMode = defaultMode == ExecutionMode.DEFAULT ? ExecutionMode.EVENT_LOOP : defaultMode;
+        this.workerThreads = workerThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 获取执行模式对应的执行器
+     * @param mode 路由的执行模式
+     * @return 执行器，返回null表示直接在事件循环线程上执行
+     */
+    public Executor executorFor(ExecutionMode mode) {
+        if (mode == ExecutionMode.DEFAULT) {
+            mode = defaultMode;
+        }
+        switch (mode) {
+            case WORKER:
+                return workerPool();
+            case VIRTUAL:
+                ExecutorService virtual = virtualExecutor();
+                return virtual != null ? virtual : workerPool();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 关闭执行器，等待中的任务会继续执行完毕
+     */
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 获取默认执行模式
+     * @return 执行模式
+     */
+    public ExecutionMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    private ExecutorService workerPool() {
+        ExecutorService pool = workerPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = workerPool;
+                if (pool == null) {
+                    // 有界队列，队列满时拒绝执行，由请求处理器返回503
+                    pool = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(queueCapacity), new DefaultThreadFactory("http-worker", true));
+                    workerPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private ExecutorService virtualExecutor() {
+        ExecutorService executor = virtualExecutor;
+        if (executor == null && !virtualUnavailable) {
+            synchronized (this) {
+                executor = virtualExecutor;
+                if (executor == null && !virtualUnavailable) {
+                    executor = createVirtualThreadExecutor();
+                    if (executor == null) {
+                        virtualUnavailable = true;
+                        System.err.println("Virtual threads require Java 21+, falling back to worker pool");
+                    }
+                    virtualExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，使框架仍可在Java 17上编译运行
+     * @return 执行器，当前JDK不支持时返回null
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(java.util.concurrent.Executors.class, "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
@@ -9,118 +9,92 @@ import cn.tjh666.httpframework.routing.Router;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
-import io.netty.handler.codec.http.HttpResponseStatus;
-
-import java.lang.reflect.Method;
 
 /**
  * HTTP请求处理器
- * 负责处理所有HTTP请求，包括路由匹配、方法调用和异常处理
+ * 负责处理所有聚合后的HTTP请求，包括路由匹配、方法调用和异常处理
+ * 方法调用、执行模式和异步返回值的处理由 {@link RequestDispatcher} 完成
  * 
  * @author Schrobit
  * @email admin@tjh666.cn
  */
 public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private final Router router;
-    private final JsonSerializer jsonSerializer;
-    private final ExceptionMapper exceptionMapper;
+    private final RequestDispatcher dispatcher;
 
     /**
-     * 构造请求处理器
+     * 构造请求处理器，所有控制器方法在事件循环线程上执行
      * @param router 路由器
      * @param jsonSerializer JSON序列化器
      * @param exceptionMapper 异常处理器
      */
     public HttpRequestHandler(Router router, JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper) {
+        this(router, jsonSerializer, exceptionMapper, null);
+    }
+
+    /**
+     * 构造请求处理器
+     * @param router 路由器
+     * @param jsonSerializer JSON序列化器
+     * @param exceptionMapper 异常处理器
+     * @param handlerExecutor 控制器执行器，为null时所有方法在事件循环线程上执行
+     */
+    public HttpRequestHandler(Router router, JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper,
+                              HandlerExecutor handlerExecutor) {
+        this(router, new RequestDispatcher(jsonSerializer, exceptionMapper, handlerExecutor));
+    }
+
+    /**
+     * 构造请求处理器
+     * @param router 路由器
+     * @param dispatcher 请求分发器
+     */
+    public HttpRequestHandler(Router router, RequestDispatcher dispatcher) {
         this.router = router;
-        this.jsonSerializer = jsonSerializer;
-        this.exceptionMapper = exceptionMapper;
+        this.dispatcher = dispatcher;
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest httpRequest) {
-        Request request = new Request(httpRequest);
-        Response response = new Response(ctx, jsonSerializer);
+        Request request = dispatcher.newRequest(httpRequest);
+        // 聚合时已发送 100 Continue 的请求沿用当时领取的响应
+        Response response = SequencedAggregator.takeResponse(ctx.channel());
+        if (response == null) {
+            response = new Response(ctx, dispatcher.getJsonSerializer());
+        }
         
+        Route route;
         try {
             // 查找匹配的路由
-            Route route = router.findRoute(request);
-            
-            if (route == null) {
-                // 404 Not Found
-                response.sendError(404, "Not Found: " + request.getUri());
-                return;
-            }
-            
-            // 调用控制器方法
-            invokeControllerMethod(route, request, response);
-            
+            route = router.findRoute(request);
         } catch (Exception e) {
-            // 使用异常处理器处理异常
-            try {
-                exceptionMapper.handle(e, response);
-            } catch (Exception ex) {
-                // 如果异常处理器也出错，发送基本错误响应
-                if (!response.isSent()) {
-                    response.sendError(500, "Internal Server Error");
-                }
-            }
+            dispatcher.handleException(e, response);
+            return;
         }
-    }
-
-    /**
-     * 调用控制器方法
-     * @param route 路由信息
-     * @param request 请求对象
-     * @param response 响应对象
-     * @throws Exception 调用异常
-     */
-    private void invokeControllerMethod(Route route, Request request, Response response) throws Exception {
-        Method method = route.getMethod();
-        Object controller = route.getController();
-        
-        // 设置方法可访问
-        method.setAccessible(true);
         
-        // 准备方法参数
-        Class<?>[] paramTypes = method.getParameterTypes();
-        Object[] args = new Object[paramTypes.length];
-        
-        for (int i = 0; i < paramTypes.length; i++) {
-            if (paramTypes[i] == Request.class) {
-                args[i] = request;
-            } else if (paramTypes[i] == Response.class) {
-                args[i] = response;
-            } else {
-                // 其他参数类型暂不支持，设为null
-                args[i] = null;
-            }
+        if (route == null) {
+            // 404 Not Found
+            response.sendError(404, "Not Found: " + request.getUri());
+            return;
         }
         
-        // 调用方法
-        Object result = method.invoke(controller, args);
-        
-        // 如果方法有返回值且响应未发送，自动发送JSON响应
-        if (result != null && !response.isSent()) {
-            response.json(200, result);
-        } else if (!response.isSent()) {
-            // 如果没有返回值且响应未发送，发送空响应
-            response.text(200, "");
-        }
+        // SimpleChannelInboundHandler 会在返回后释放请求，处理完成（包括异步完成）前需要额外保留一次
+        httpRequest.retain();
+        dispatcher.dispatch(ctx, route, request, response);
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
-        
-        // 创建响应对象处理异常
-        Response response = new Response(ctx, jsonSerializer);
-        try {
-            exceptionMapper.handle(new Exception(cause), response);
-        } catch (Exception e) {
-            if (!response.isSent()) {
-                response.sendError(500, "Internal Server Error");
-            }
+
+        if (Response.hasPendingResponses(ctx.channel())) {
+            // 前面的响应尚未写出，新的响应会排在它们之后，无法对应到出错的请求，直接关闭连接
+            ctx.close();
+            return;
         }
+
+        // 创建响应对象处理异常
+        Response response = new Response(ctx, dispatcher.getJsonSerializer());
+        dispatcher.handleException(new Exception(cause), response);
     }
-}
\ No newline at end of file
+}
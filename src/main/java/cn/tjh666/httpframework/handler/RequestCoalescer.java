@@ -0,0 +1,263 @@
+package cn.tjh666.httpframework.handler;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 请求合并（single-flight）
+ * 记录 {@link cn.tjh666.httpframework.annotation.Coalesce} 路由正在处理的请求，相同的请求到达时挂到正在进行的
+ * 调用上，调用完成后把编码后的响应复制给所有等待的请求，控制器方法只执行一次
+ *
+ * - 进行中的调用保存在 {@link ConcurrentHashMap} 中，以 putIfAbsent 决定由哪个请求执行
+ * - 等待的请求通过CAS压入无锁链表；完成时以一次CAS写入结果并取走链表，再从表中移除，
+ *   此后加入的请求直接得到结果，不会丢失
+ * - 响应体完成时复制一次到堆内存，各等待请求共享同一个数组，与各连接的写出和释放互不影响
+ * - 执行的请求失败（5xx、抛出 Error）、没有产生完整响应，或等待超时时放弃这次调用，
+ *   等待的请求各自调用控制器方法；超时同时把调用移出表，之后的请求不再加入
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class RequestCoalescer {
+    private static final Object ABANDONED = new Object();
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * 相同的请求正在处理时加入等待，否则登记为新的调用
+     * @param key 请求键
+     * @param executor 等待超时的计时器，通常为连接所属的事件循环
+     * @param timeoutNanos 等待超时（纳秒）
+     * @param onResult 加入等待后得到结果时调用，响应的所有权转移给回调
+     * @param fallback 加入等待后调用被放弃或等待超时时调用，由等待的请求自行调用控制器方法
+     * @return 加入等待时返回null，结果或回退只会发生其中一个、且只发生一次；
+     *         登记为新的调用时返回该调用，调用方执行控制器方法后调用 {@link Flight#complete(FullHttpResponse)}
+     *         或 {@link Flight#abandon()}
+     */
+    public Flight joinOrBegin(String key, EventExecutor executor, long timeoutNanos,
+                              Consumer<FullHttpResponse> onResult, Runnable fallback) {
+        Flight flight = new Flight(key);
+        Flight leader = inFlight.putIfAbsent(key, flight);
+        if (leader == null) {
+            leaders.increment();
+            return flight;
+        }
+        coalesced.increment();
+        Waiter waiter = new Waiter(onResult, fallback);
+        if (leader.join(waiter)) {
+            waiter.timeout = executor.schedule(() -> {
+                if (waiter.claim()) {
+                    timeouts.increment();
+                    // 执行的请求迟迟没有结果，之后的相同请求重新登记，不再加入这次调用
+                    inFlight.remove(key, leader);
+                    fallBack(waiter);
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        return null;
+    }
+
+    /**
+     * 获取实际执行的调用次数
+     * @return 次数
+     */
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    /**
+     * 获取加入其他调用等待结果的请求数
+     * @return 请求数
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 获取加入等待后又自行调用控制器方法的请求数（调用被放弃或等待超时）
+     * @return 请求数
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * 获取等待超时的请求数
+     * @return 请求数
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * 获取当前进行中的调用数
+     * @return 调用数
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public String toString() {
+        return "leaders=" + getLeaders() + " coalesced=" + getCoalesced() + " fallbacks=" + getFallbacks()
+                + " timeouts=" + getTimeouts() + " inFlight=" + getInFlight();
+    }
+
+    /**
+     * 一次进行中的调用
+     * 状态为等待链表（{@link Waiter}，可为null）、最终结果（{@link Result}）或已放弃
+     */
+    public final class Flight {
+        private final String key;
+        private final AtomicReference<Object> state = new AtomicReference<>();
+
+        private Flight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 加入等待；调用已结束时立即交付结果或回退
+         * @param waiter 等待的请求
+         * @return 已加入等待链表时返回true
+         */
+        private boolean join(Waiter waiter) {
+            while (true) {
+                Object current = state.get();
+                if (current instanceof Result) {
+                    if (waiter.claim()) {
+                        ((Result) current).deliver(waiter);
+                    }
+                    return false;
+                }
+                if (current == ABANDONED) {
+                    if (waiter.claim()) {
+                        fallBack(waiter);
+                    }
+                    return false;
+                }
+                waiter.next = (Waiter) current;
+                if (state.compareAndSet(current, waiter)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 调用完成，把响应的副本发送给所有等待的请求
+         * 传入的响应保持不变，由调用方继续写出；调用已结束时不做任何事
+         * @param response 完整响应
+         */
+        public void complete(FullHttpResponse response) {
+            if (isDone()) {
+                return;
+            }
+            Result result = new Result(response.status(), new DefaultHttpHeaders().set(response.headers()),
+                    ByteBufUtil.getBytes(response.content()));
+            end(result, result::deliver);
+        }
+
+        /**
+         * 放弃调用（执行失败或没有产生完整响应），等待的请求各自调用控制器方法
+         * 调用已结束时不做任何事
+         */
+        public void abandon() {
+            end(ABANDONED, RequestCoalescer.this::fallBack);
+        }
+
+        private boolean isDone() {
+            Object current = state.get();
+            return current instanceof Result || current == ABANDONED;
+        }
+
+        /**
+         * 写入最终状态，取走等待链表并从进行中的表移除；并发结束时只有第一个生效。
+         * 写入状态之后、移除之前加入的请求直接得到最终状态，不会丢失
+         */
+        private void end(Object outcome, Consumer<Waiter> action) {
+            while (true) {
+                Object current = state.get();
+                if (current instanceof Result || current == ABANDONED) {
+                    return;
+                }
+                if (state.compareAndSet(current, outcome)) {
+                    inFlight.remove(key, this);
+                    for (Waiter waiter = (Waiter) current; waiter != null; waiter = waiter.next) {
+                        if (waiter.claim()) {
+                            action.accept(waiter);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void fallBack(Waiter waiter) {
+        fallbacks.increment();
+        waiter.fallback.run();
+    }
+
+    private static final class Waiter {
+        final Consumer<FullHttpResponse> onResult;
+        final Runnable fallback;
+        final AtomicBoolean done = new AtomicBoolean();
+        Waiter next;
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(Consumer<FullHttpResponse> onResult, Runnable fallback) {
+            this.onResult = onResult;
+            this.fallback = fallback;
+        }
+
+        /**
+         * 领取交付权，结果、放弃和超时之间只有一个生效
+         */
+        boolean claim() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            return true;
+        }
+    }
+
+    private static final class Result {
+        final HttpResponseStatus status;
+        final HttpHeaders headers;
+        final byte[] content;
+
+        Result(HttpResponseStatus status, HttpHeaders headers, byte[] content) {
+            this.status = status;
+            this.headers = headers;
+            this.content = content;
+        }
+
+        void deliver(Waiter waiter) {
+            waiter.onResult.accept(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                    Unpooled.wrappedBuffer(content), headers.copy(), EmptyHttpHeaders.INSTANCE));
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.exception.ExceptionMapper;
+import cn.tjh666.httpframework.json.JsonSerializer;
+import cn.tjh666.httpframework.routing.Route;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 请求分发器
+ * 负责在已匹配路由后调用控制器方法、写出返回值和处理异常，
+ * 由聚合请求处理器和流式请求处理器共享，无连接状态，可在多个通道间共用
+ *
+ * 控制器方法根据路由的执行模式在事件循环线程或工作线程上执行，
+ * 响应写出由Netty切换回通道所属的事件循环线程
+ * 控制器可以返回 CompletionStage，完成后再写出结果，失败时交给异常处理器
+ * 缓存路由在事件循环线程上查找 {@link ResponseCache}，命中时直接写出缓存的响应，不调度到工作线程
+ * GET请求由 {@link ConditionalRequests} 补充ETag并处理条件请求头；声明了版本方法的路由在调度前比较版本
+ * 合并路由的相同请求由 {@link RequestCoalescer} 挂到进行中的调用上，不调度到工作线程
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class RequestDispatcher {
+    private final JsonSerializer jsonSerializer;
+    private final ExceptionMapper exceptionMapper;
+    private final HandlerExecutor handlerExecutor;
+    private final HttpDataFactory dataFactory;
+    private final ResponseCache responseCache;
+    private final ConditionalRequests conditionalRequests;
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    /**
+     * 构造请求分发器，使用默认的表单数据工厂
+     * @param jsonSerializer JSON序列化器
+     * @param exceptionMapper 异常处理器
+     * @param handlerExecutor 控制器执行器，为null时所有方法在事件循环线程上执行
+     */
+    public RequestDispatcher(JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper,
+                             HandlerExecutor handlerExecutor) {
+        this(jsonSerializer, exceptionMapper, handlerExecutor, Request.DEFAULT_DATA_FACTORY);
+    }
+
+    /**
+     * 构造请求分发器
+     * @param jsonSerializer JSON序列化器
+     * @param exceptionMapper 异常处理器
+     * @param handlerExecutor 控制器执行器，为null时所有方法在事件循环线程上执行
+     * @param dataFactory 表单数据工厂
+     */
+    public RequestDispatcher(JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper,
+                             HandlerExecutor handlerExecutor, HttpDataFactory dataFactory) {
+        this(jsonSerializer, exceptionMapper, handlerExecutor, dataFactory, null);
+    }
+
+    /**
+     * 构造请求分发器
+     * @param jsonSerializer JSON序列化器
+     * @param exceptionMapper 异常处理器
+     * @param handlerExecutor 控制器执行器，为null时所有方法在事件循环线程上执行
+     * @param dataFactory 表单数据工厂
+     * @param responseCache 响应缓存，为null时不缓存
+     */
+    public RequestDispatcher(JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper,
+                             HandlerExecutor handlerExecutor, HttpDataFactory dataFactory, ResponseCache responseCache) {
+        this(jsonSerializer, exceptionMapper, handlerExecutor, dataFactory, responseCache, null);
+    }
+
+    /**
+     * 构造请求分发器
+     * @param jsonSerializer JSON序列化器
+     * @param exceptionMapper 异常处理器
+     * @param handlerExecutor 控制器执行器，为null时所有方法在事件循环线程上执行
+     * @param dataFactory 表单数据工厂
+     * @param responseCache 响应缓存，为null时不缓存
+     * @param conditionalRequests 条件请求处理，为null时不生成ETag，也不返回304
+     */
+    public RequestDispatcher(JsonSerializer jsonSerializer, ExceptionMapper exceptionMapper,
+                             HandlerExecutor handlerExecutor, HttpDataFactory dataFactory, ResponseCache responseCache,
+                             ConditionalRequests conditionalRequests) {
+        this.jsonSerializer = jsonSerializer;
+        this.exceptionMapper = exceptionMapper;
+        this.handlerExecutor = handlerExecutor;
+        this.dataFactory = dataFactory;
+        this.responseCache = responseCache;
+        this.conditionalRequests = conditionalRequests;
+    }
+
+    /**
+     * 创建请求对象
+     * @param httpRequest Netty HTTP请求对象
+     * @return 使用本分发器表单数据工厂的请求对象
+     */
+    public Request newRequest(FullHttpRequest httpRequest) {
+        return new Request(httpRequest, dataFactory);
+    }
+
+    /**
+     * 分发请求
+     * 调用方需要为本次处理保留一次 request.getHttpRequest() 的引用，
+     * 处理完成（包括异步完成）后由分发器释放
+     * @param ctx 通道上下文
+     * @param route 已匹配的路由
+     * @param request 请求对象
+     * @param response 响应对象
+     */
+    public void dispatch(ChannelHandlerContext ctx, Route route, Request request, Response response) {
+        boolean conditional = conditionalRequests != null && conditionalRequests.applies(request);
+        if (conditional) {
+            if (route.isVersioned() && notModified(route, request, response)) {
+                return;
+            }
+            // 先补充ETag，缓存中保存的响应也带有ETag
+            response.addFilter(conditionalRequests::tag);
+        }
+
+        String cacheKey = null;
+        if (responseCache != null && route.isCacheable()) {
+            cacheKey = ResponseCache.key(route, request);
+            FullHttpResponse cached = responseCache.get(cacheKey, route);
+            if (cached != null) {
+                addConditionalFilter(conditional, request, response);
+                release(request);
+                response.send(cached);
+                return;
+            }
+        }
+
+        if (route.isCoalesced()) {
+            RequestCoalescer.Flight flight = requestCoalescer.joinOrBegin(
+                    ResponseCache.key(request, route.getCoalesceHeaders()), ctx.executor(), route.getCoalesceTimeoutNanos(),
+                    result -> {
+                        release(request);
+                        response.send(result);
+                    },
+                    // 调用被放弃或等待超时，回到本连接的事件循环自行调用
+                    () -> ctx.executor().execute(() -> schedule(ctx, route, request, response)));
+            if (flight == null) {
+                // 相同的请求正在处理，结果写出时经过本响应自己的条件过滤器
+                addConditionalFilter(conditional, request, response);
+                return;
+            }
+            response.addFilter(written -> {
+                if (written.status().codeClass() == HttpStatusClass.SERVER_ERROR) {
+                    flight.abandon();
+                } else {
+                    flight.complete(written);
+                }
+                return written;
+            });
+            response.onStream(flight::abandon);
+            // 处理结束（包括抛出异常）时仍未产生完整响应，等待的请求不再等待
+            request.onRelease(flight::abandon);
+        }
+
+        if (cacheKey != null) {
+            // 未命中时照常调用控制器，写出前复制一份响应放入缓存
+            String key = cacheKey;
+            response.addFilter(written -> {
+                responseCache.put(key, route, written);
+                return written;
+            });
+        }
+        addConditionalFilter(conditional, request, response);
+        schedule(ctx, route, request, response);
+    }
+
+    /**
+     * 按路由的执行模式调用控制器方法，工作线程池已满时返回503
+     * @param ctx 通道上下文
+     * @param route 路由信息
+     * @param request 请求对象
+     * @param response 响应对象
+     */
+    private void schedule(ChannelHandlerContext ctx, Route route, Request request, Response response) {
+        Executor executor = handlerExecutor != null ? handlerExecutor.executorFor(route.getExecutionMode()) : null;
+        if (executor == null) {
+            invoke(ctx, route, request, response);
+            return;
+        }
+
+        try {
+            executor.execute(() -> invoke(ctx, route, request, response));
+        } catch (RejectedExecutionException e) {
+            release(request);
+            response.sendError(503, "Service Unavailable");
+        }
+    }
+
+    /**
+     * 调用版本方法，版本与请求的 If-None-Match 匹配时发送304并结束处理，否则把版本设为响应的ETag
+     * @return 已发送304或错误响应时返回true
+     */
+    private boolean notModified(Route route, Request request, Response response) {
+        Object version;
+        try {
+            version = route.version(request, response);
+        } catch (Throwable t) {
+            release(request);
+            handleException(unwrap(t), response);
+            return true;
+        }
+        if (version == null) {
+            return false;
+        }
+        String etag = ConditionalRequests.versionTag(version);
+        if (conditionalRequests.matches(request, etag)) {
+            release(request);
+            response.send(conditionalRequests.notModified(etag));
+            return true;
+        }
+        response.etag(etag);
+        return false;
+    }
+
+    /**
+     * 写出前按请求的条件头把200响应替换为304，在缓存过滤器之后执行，缓存保存的始终是完整响应
+     */
+    private void addConditionalFilter(boolean conditional, Request request, Response response) {
+        if (conditional) {
+            response.addFilter(written -> conditionalRequests.evaluate(request, written));
+        }
+    }
+
+    /**
+     * 使用异常处理器处理异常
+     * @param e 异常对象
+     * @param response 响应对象
+     */
+    public void handleException(Exception e, Response response) {
+        try {
+            exceptionMapper.handle(e, response);
+        } catch (Exception ex) {
+            // 如果异常处理器也出错，发送基本错误响应
+            if (!response.isSent()) {
+                response.sendError(500, "Internal Server Error");
+            }
+        }
+    }
+
+    /**
+     * 获取表单数据工厂
+     * @return 表单数据工厂
+     */
+    public HttpDataFactory getDataFactory() {
+        return dataFactory;
+    }
+
+    /**
+     * 获取响应缓存
+     * @return 响应缓存，未启用时为null
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * 获取条件请求处理
+     * @return 条件请求处理，未启用时为null
+     */
+    public ConditionalRequests getConditionalRequests() {
+        return conditionalRequests;
+    }
+
+    /**
+     * 获取请求合并统计
+     * @return 请求合并
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * 获取JSON序列化器
+     * @return JSON序列化器实例
+     */
+    public JsonSerializer getJsonSerializer() {
+        return jsonSerializer;
+    }
+
+    /**
+     * 调用控制器方法并处理异常
+     * 同步返回时立即写出响应；返回 CompletionStage 时在其完成后于通道的事件循环线程上写出
+     * @param ctx 通道上下文
+     * @param route 路由信息
+     * @param request 请求对象
+     * @param response 响应对象
+     */
+    private void invoke(ChannelHandlerContext ctx, Route route, Request request, Response response) {
+        CompletionStage<?> pending = null;
+        try {
+            // 通过注册时生成的调用器调用方法，参数绑定已预先组合
+            Object result = route.invoke(request, response);
+            if (result instanceof CompletionStage) {
+                pending = (CompletionStage<?>) result;
+            } else {
+                writeResult(result, response);
+            }
+        } catch (Throwable t) {
+            // Error（如AssertionError）也要以错误响应结束，否则同一连接上后续的响应会一直等待这个序号
+            handleException(unwrap(t), response);
+        } finally {
+            if (pending == null) {
+                release(request);
+            }
+        }
+
+        if (pending == null) {
+            return;
+        }
+
+        pending.whenComplete((value, error) -> {
+            EventExecutor eventLoop = ctx.executor();
+            if (eventLoop.inEventLoop()) {
+                complete(request, response, value, error);
+            } else {
+                eventLoop.execute(() -> complete(request, response, value, error));
+            }
+        });
+    }
+
+    /**
+     * 异步结果完成后写出响应并释放请求
+     * @param request 请求对象
+     * @param response 响应对象
+     * @param value 异步结果
+     * @param error 异步异常，成功时为null
+     */
+    private void complete(Request request, Response response, Object value, Throwable error) {
+        try {
+            if (error != null) {
+                handleException(unwrap(error), response);
+            } else {
+                writeResult(value, response);
+            }
+        } catch (Throwable t) {
+            handleException(unwrap(t), response);
+        } finally {
+            release(request);
+        }
+    }
+
+    /**
+     * 根据返回值写出响应
+     * @param result 方法返回值
+     * @param response 响应对象
+     */
+    private void writeResult(Object result, Response response) {
+        // 如果方法有返回值且响应未发送，自动发送JSON响应
+        if (result != null && !response.isSent()) {
+            response.json(200, result);
+        } else if (!response.isSent()) {
+            // 如果没有返回值且响应未发送，发送空响应
+            response.text(200, "");
+        }
+    }
+
+    /**
+     * 请求处理结束，释放请求持有的资源
+     * @param request 请求对象
+     */
+    private void release(Request request) {
+        request.release();
+    }
+
+    /**
+     * 解开 CompletionStage 包装的异常，Error 包装为 Exception 交给异常处理器
+     * @param error 异步异常或控制器抛出的异常
+     * @return 原始异常
+     */
+    private static Exception unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof Exception ? (Exception) error : new Exception(error);
+    }
+}
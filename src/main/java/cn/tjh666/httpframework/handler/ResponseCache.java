@@ -0,0 +1,280 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.routing.Route;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 响应缓存
+ * 保存 {@link cn.tjh666.httpframework.annotation.Cacheable} 路由编码后的响应体和响应头，命中时以
+ * {@link ByteBuf#retainedDuplicate()} 共享同一块响应体内存写出，不调用控制器方法，也不重新序列化
+ *
+ * - 响应体复制到堆外内存（非池化直接缓冲区），不占用Java堆，也不会因所在的内存块被复用而被其他分配覆盖
+ * - 总字节数超过预算时按最近访问时间淘汰最久未访问的条目，一次淘汰到预算的90%，分摊淘汰的排序开销
+ * - 查找不加锁；过期条目在查找时移除
+ * - 条目记录产生它的路由，控制器被替换或注销后旧路由的条目不再命中，
+ *   替换前已开始处理、替换后才写出的响应也不会被新路由的请求取到
+ *
+ * 缓存的是HTTP语义上的响应（状态、响应头和响应体），HTTP/1.1和HTTP/2连接共用同一份，
+ * 每次命中构造新的响应对象，连接相关的响应头（如 {@code Connection}）仍由各自的管道处理
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ResponseCache {
+    private static final double EVICT_TO = 0.9;
+
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 构造响应缓存
+     * @param maxBytes 缓存响应体的总字节数上限
+     */
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 计算缓存键：方法、原始URI（含查询参数）和路由指定的请求头
+     * @param route 路由
+     * @param request 请求对象
+     * @return 缓存键
+     */
+    public static String key(Route route, Request request) {
+        return key(request, route.getCacheHeaders());
+    }
+
+    /**
+     * 由方法、原始URI（含查询参数）和指定请求头的值组成请求键
+     * @param request 请求对象
+     * @param headers 参与比较的请求头
+     * @return 请求键
+     */
+    static String key(Request request, String[] headers) {
+        StringBuilder key = new StringBuilder(64)
+                .append(request.getMethod().name()).append(' ')
+                .append(request.getHttpRequest().uri());
+        for (String header : headers) {
+            String value = request.getHeader(header);
+            key.append('\n').append(value != null ? value : "");
+        }
+        return key.toString();
+    }
+
+    /**
+     * 查找缓存的响应
+     * @param key 缓存键
+     * @param route 请求匹配的路由
+     * @return 新的响应对象，共享缓存的响应体；未命中、已过期或由其他路由产生时返回null
+     */
+    public FullHttpResponse get(String key, Route route) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.expiresAt >= 0 || entry.route != route) {
+            remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        ByteBuf content;
+        try {
+            content = entry.content.retainedDuplicate();
+        } catch (IllegalReferenceCountException e) {
+            // 条目刚被其他线程淘汰
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = now;
+        hits.increment();
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, entry.status, content,
+                entry.headers.copy(), EmptyHttpHeaders.INSTANCE);
+    }
+
+    /**
+     * 缓存响应
+     * 只缓存200响应；响应体复制到堆外内存，传入的响应保持不变，由调用方继续写出
+     * @param key 缓存键
+     * @param route 路由，提供有效期和参与缓存键的请求头
+     * @param response 完整响应
+     */
+    public void put(String key, Route route, FullHttpResponse response) {
+        if (!HttpResponseStatus.OK.equals(response.status())) {
+            return;
+        }
+        ByteBuf source = response.content();
+        int length = source.readableBytes();
+        if (length > maxBytes) {
+            return;
+        }
+        if (route.getCacheHeaders().length > 0) {
+            response.headers().set(HttpHeaderNames.VARY, String.join(", ", route.getCacheHeaders()));
+        }
+        ByteBuf content = UnpooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        content.writeBytes(source, source.readerIndex(), length);
+        HttpHeaders headers = new DefaultHttpHeaders().set(response.headers());
+        long now = System.nanoTime();
+        Entry entry = new Entry(route, response.status(), headers, content, now + route.getCacheTtlNanos(), now);
+
+        Entry previous = entries.put(key, entry);
+        bytes.addAndGet(length);
+        if (previous != null) {
+            bytes.addAndGet(-previous.content.readableBytes());
+            previous.content.release();
+        }
+        if (bytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * 按最近访问时间从旧到新淘汰，直到总字节数降到预算的90%
+     */
+    private synchronized void evict() {
+        if (bytes.get() <= maxBytes) {
+            return;
+        }
+        // 先取访问时间快照，排序期间其他线程的命中不影响比较结果
+        List<Candidate> candidates = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> candidates.add(new Candidate(key, entry, entry.lastAccess)));
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+        long target = (long) (maxBytes * EVICT_TO);
+        for (Candidate candidate : candidates) {
+            if (bytes.get() <= target) {
+                break;
+            }
+            if (remove(candidate.key, candidate.entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean remove(String key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        bytes.addAndGet(-entry.content.readableBytes());
+        entry.content.release();
+        return true;
+    }
+
+    /**
+     * 移除控制器的路由产生的所有条目，控制器被替换或注销时调用
+     * @param controllerClass 控制器类
+     */
+    public void invalidate(Class<?> controllerClass) {
+        entries.forEach((key, entry) -> {
+            if (entry.route.getController().getClass() == controllerClass) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    /**
+     * 清空缓存，例如数据更新后
+     */
+    public void clear() {
+        entries.forEach(this::remove);
+    }
+
+    /**
+     * 获取命中次数
+     * @return 次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取未命中次数（包括已过期）
+     * @return 次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取因超过字节预算被淘汰的条目数
+     * @return 条目数
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 获取缓存的条目数
+     * @return 条目数
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * 获取缓存的响应体总字节数
+     * @return 字节数
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "entries=" + getSize() + " bytes=" + getBytes() + " hits=" + getHits() + " misses=" + getMisses()
+                + " evictions=" + getEvictions();
+    }
+
+    private static final class Candidate {
+        final String key;
+        final Entry entry;
+        final long lastAccess;
+
+        Candidate(String key, Entry entry, long lastAccess) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Entry {
+        final Route route;
+        final HttpResponseStatus status;
+        final HttpHeaders headers;
+        final ByteBuf content;
+        final long expiresAt;
+        volatile long lastAccess;
+
+        Entry(Route route, HttpResponseStatus status, HttpHeaders headers, ByteBuf content, long expiresAt,
+              long lastAccess) {
+            this.route = route;
+            this.status = status;
+            this.headers = headers;
+            this.content = content;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
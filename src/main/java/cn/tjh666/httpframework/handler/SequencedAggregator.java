@@ -0,0 +1,100 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.json.JsonSerializer;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AttributeKey;
+
+import java.util.List;
+
+/**
+ * 按响应序号写出中间响应和错误响应的HTTP对象聚合器
+ * {@link HttpObjectAggregator} 直接写出 100 Continue、417 和 413，管道化连接上前面的响应尚未写出时，
+ * 这些响应会插到它们前面。本聚合器改为通过 {@link Response} 写出，与其他响应一样按请求顺序返回：
+ * 发送 100 Continue 时领取的响应留给聚合后的请求使用，被拒绝的请求不会到达 {@link HttpRequestHandler}
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class SequencedAggregator extends HttpObjectAggregator {
+    private static final AttributeKey<Response> CONTINUED =
+            AttributeKey.valueOf(SequencedAggregator.class.getName() + ".continued");
+
+    private final JsonSerializer jsonSerializer;
+    private boolean discarding;
+
+    /**
+     * 构造聚合器
+     * @param maxContentLength 请求体最大长度
+     * @param jsonSerializer JSON序列化器
+     */
+    public SequencedAggregator(int maxContentLength, JsonSerializer jsonSerializer) {
+        super(maxContentLength);
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    /**
+     * 取出发送 100 Continue 时为正在聚合的请求领取的响应
+     * @param channel 请求所在的通道
+     * @return 响应，没有发送过 100 Continue 时返回null
+     */
+    static Response takeResponse(Channel channel) {
+        return channel.attr(CONTINUED).getAndSet(null);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpMessage) {
+            discarding = false;
+            // 先于父类处理 Expect，父类随后不会再看到 Expect 请求头
+            Object decision = newContinueResponse((HttpMessage) msg, maxContentLength(), ctx.pipeline());
+            if (decision != null) {
+                FullHttpResponse continueResponse = (FullHttpResponse) decision;
+                Response response = new Response(ctx, jsonSerializer);
+                if (continueResponse.status().code() == HttpResponseStatus.CONTINUE.code()) {
+                    continueResponse.release();
+                    response.sendContinue();
+                    ctx.channel().attr(CONTINUED).set(response);
+                } else {
+                    // 417 或 413：客户端不会发送请求体，仍然到达的请求体直接丢弃
+                    response.send(continueResponse);
+                    discarding = true;
+                    return;
+                }
+            }
+        } else if (discarding) {
+            if (msg instanceof LastHttpContent) {
+                discarding = false;
+            }
+            return;
+        }
+        super.decode(ctx, msg, out);
+    }
+
+    @Override
+    protected void handleOversizedMessage(ChannelHandlerContext ctx, HttpMessage oversized) throws Exception {
+        if (!(oversized instanceof HttpRequest)) {
+            super.handleOversizedMessage(ctx, oversized);
+            return;
+        }
+
+        Response response = takeResponse(ctx.channel());
+        if (response == null) {
+            response = new Response(ctx, jsonSerializer);
+        }
+        FullHttpResponse tooLarge = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, Unpooled.EMPTY_BUFFER);
+        tooLarge.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        // 与父类一致：无法跳过剩余请求体时写出后关闭连接，否则父类丢弃剩余的请求体后继续处理后续请求
+        if (oversized instanceof FullHttpMessage
+                || !HttpUtil.is100ContinueExpected(oversized) && !HttpUtil.isKeepAlive(oversized)) {
+            tooLarge.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            response.sendAndClose(tooLarge);
+        } else {
+            response.send(tooLarge);
+        }
+    }
+}
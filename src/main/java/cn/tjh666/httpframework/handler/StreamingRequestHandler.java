@@ -0,0 +1,108 @@
+package cn.tjh666.httpframework.handler;
+
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.StreamingBody;
+import cn.tjh666.httpframework.routing.Route;
+import cn.tjh666.httpframework.routing.Router;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * 流式请求处理器
+ * 位于HTTP编解码器与聚合器之间，请求头到达时匹配路由：
+ * 命中 {@code @Streaming} 路由的请求立即分发，后续请求体分片交给 {@link StreamingBody}，不经过聚合；
+ * 其他请求原样交给聚合器和 {@link HttpRequestHandler}
+ *
+ * 保存当前连接的请求体状态，每个连接需要单独的实例
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class StreamingRequestHandler extends ChannelInboundHandlerAdapter {
+    private final Router router;
+    private final RequestDispatcher dispatcher;
+    private StreamingBody current;
+
+    /**
+     * 构造流式请求处理器
+     * @param router 路由器
+     * @param dispatcher 请求分发器
+     */
+    public StreamingRequestHandler(Router router, RequestDispatcher dispatcher) {
+        this.router = router;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (current != null && msg instanceof HttpContent) {
+            StreamingBody body = current;
+            if (msg instanceof LastHttpContent) {
+                current = null;
+            }
+            try {
+                body.onContent((HttpContent) msg);
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+            return;
+        }
+
+        if (msg instanceof HttpRequest && !(msg instanceof FullHttpRequest) && router.hasStreamingRoutes()
+                && ((HttpRequest) msg).decoderResult().isSuccess() && dispatchStreaming(ctx, (HttpRequest) msg)) {
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (current != null) {
+            current.onError(new ClosedChannelException());
+            current = null;
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 如果请求命中流式路由则立即分发
+     * @param ctx 通道上下文
+     * @param head 请求头
+     * @return 已分发返回true，否则返回false
+     */
+    private boolean dispatchStreaming(ChannelHandlerContext ctx, HttpRequest head) {
+        // 只有请求头的请求对象，请求体通过 StreamingBody 读取
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(head.protocolVersion(), head.method(), head.uri(),
+                Unpooled.EMPTY_BUFFER, head.headers(), EmptyHttpHeaders.INSTANCE);
+        Request request = dispatcher.newRequest(httpRequest);
+        Route route;
+        try {
+            route = router.findRoute(request);
+        } catch (Exception e) {
+            // 交给聚合后的处理流程统一处理
+            return false;
+        }
+        if (route == null || !route.isStreaming()) {
+            return false;
+        }
+
+        Response response = new Response(ctx, dispatcher.getJsonSerializer());
+        if (HttpUtil.is100ContinueExpected(head)) {
+            // 经排序器写出，管道化连接上排在前面请求的响应之后
+            response.sendContinue();
+        }
+
+        StreamingBody body = new StreamingBody(ctx, head, dispatcher.getDataFactory());
+        request.setStreamingBody(body);
+        current = body;
+
+        dispatcher.dispatch(ctx, route, request, response);
+        return true;
+    }
+}
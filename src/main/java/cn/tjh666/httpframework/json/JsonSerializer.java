@@ -1,6 +1,16 @@
 package cn.tjh666.httpframework.json;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
 
 /**
  * JSON序列化器
@@ -35,6 +45,36 @@ public class JsonSerializer {
         return objectMapper.writeValueAsString(object);
     }
 
+    /**
+     * 将对象序列化为UTF-8 JSON并直接写入分配器提供的缓冲区
+     * 使用池化分配器时缓冲区来自内存池（通常为直接内存），避免中间String和额外拷贝
+     * 字符串对象与 {@link #serialize(Object)} 一致，按原样输出
+     * @param object 要序列化的对象
+     * @param allocator 缓冲区分配器，通常为 ctx.alloc()
+     * @return 包含JSON字节的缓冲区，由调用方负责释放
+     * @throws Exception 序列化异常
+     */
+    public ByteBuf serialize(Object object, ByteBufAllocator allocator) throws Exception {
+        if (object == null) {
+            return ByteBufUtil.writeAscii(allocator, "null");
+        }
+        if (object instanceof String) {
+            return ByteBufUtil.writeUtf8(allocator, (String) object);
+        }
+        
+        ByteBuf buffer = allocator.ioBuffer();
+        boolean success = false;
+        try {
+            objectMapper.writeValue((OutputStream) new ByteBufOutputStream(buffer), object);
+            success = true;
+            return buffer;
+        } finally {
+            if (!success) {
+                buffer.release();
+            }
+        }
+    }
+
     /**
      * 将JSON字符串反序列化为对象
      * @param json JSON字符串
@@ -47,6 +87,44 @@ public class JsonSerializer {
         return objectMapper.readValue(json, clazz);
     }
 
+    /**
+     * 将ByteBuf中的UTF-8 JSON反序列化为对象
+     * 直接读取字节，不经过中间String，不改变ByteBuf的读索引
+     * @param content JSON字节内容
+     * @param clazz 目标类型
+     * @param <T> 泛型类型
+     * @return 反序列化后的对象
+     * @throws Exception 反序列化异常
+     */
+    public <T> T deserialize(ByteBuf content, Class<T> clazz) throws Exception {
+        return read(objectMapper.readerFor(clazz), content);
+    }
+
+    /**
+     * 创建指定类型的预构建读取器，用于在注册阶段缓存类型解析结果
+     * @param type 目标类型，可以是泛型类型
+     * @return ObjectReader对象
+     */
+    public ObjectReader reader(Type type) {
+        return objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type));
+    }
+
+    /**
+     * 使用读取器从ByteBuf中反序列化对象
+     * @param reader 读取器
+     * @param content JSON字节内容
+     * @param <T> 泛型类型
+     * @return 反序列化后的对象
+     * @throws Exception 反序列化异常
+     */
+    public static <T> T read(ObjectReader reader, ByteBuf content) throws Exception {
+        if (content.hasArray()) {
+            return reader.readValue(content.array(), content.arrayOffset() + content.readerIndex(),
+                                    content.readableBytes());
+        }
+        return reader.readValue((InputStream) new ByteBufInputStream(content.duplicate()));
+    }
+
     /**
      * 获取ObjectMapper实例
      * @return ObjectMapper对象
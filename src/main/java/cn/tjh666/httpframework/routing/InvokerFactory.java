@@ -0,0 +1,71 @@
+package cn.tjh666.httpframework.routing;
+
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.json.JsonSerializer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+/**
+ * 控制器调用器工厂
+ * 在路由注册时为控制器方法生成预链接的方法句柄：
+ * 绑定控制器实例、组合各参数的绑定句柄，最终得到固定类型
+ * (Request, Response) -> Object 的调用器，请求处理时通过 invokeExact 直接调用
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public final class InvokerFactory {
+    /**
+     * 调用器的统一类型
+     */
+    public static final MethodType INVOKER_TYPE =
+            MethodType.methodType(Object.class, Request.class, Response.class);
+
+    private InvokerFactory() {
+    }
+
+    /**
+     * 创建调用器
+     * @param controller 控制器实例
+     * @param method 处理方法
+     * @param jsonSerializer JSON序列化器，用于请求体参数绑定
+     * @return 类型为 {@link #INVOKER_TYPE} 的方法句柄
+     */
+    public static MethodHandle create(Object controller, Method method, JsonSerializer jsonSerializer) {
+        // 仅在注册时设置一次可访问性
+        method.setAccessible(true);
+
+        MethodHandle target;
+        try {
+            target = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access handler method: " + method, e);
+        }
+        if (!Modifier.isStatic(method.getModifiers())) {
+            target = target.bindTo(controller);
+        }
+
+        // 从后向前把每个参数替换为 (Request, Response) 形式的绑定句柄
+        Parameter[] parameters = method.getParameters();
+        for (int i = parameters.length - 1; i >= 0; i--) {
+            target = MethodHandles.collectArguments(target, i, ParameterBinder.resolve(parameters[i], jsonSerializer));
+        }
+
+        // 将重复的 (Request, Response) 参数合并为一组
+        int[] reorder = new int[parameters.length * 2];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i % 2;
+        }
+        MethodType merged = MethodType.methodType(target.type().returnType(), Request.class, Response.class);
+        target = MethodHandles.permuteArguments(target, merged, reorder);
+
+        // 基本类型返回值装箱，void 返回 null
+        return target.asType(INVOKER_TYPE);
+    }
+}
@@ -0,0 +1,336 @@
+package cn.tjh666.httpframework.routing;
+
+import cn.tjh666.httpframework.annotation.Body;
+import cn.tjh666.httpframework.annotation.FormParam;
+import cn.tjh666.httpframework.annotation.Header;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.annotation.QueryParam;
+import cn.tjh666.httpframework.annotation.Streaming;
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.StreamingBody;
+import cn.tjh666.httpframework.json.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.multipart.FileUpload;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * 参数绑定器
+ * 在路由注册时为控制器方法的每个参数解析出一个绑定句柄，
+ * 句柄类型统一为 (Request, Response) -> 参数类型，请求处理时无需再读取反射元数据
+ *
+ * 支持的参数：
+ * - Request / Response 对象
+ * - StreamingBody：仅限 {@link Streaming} 方法
+ * - {@link PathParam} / {@link QueryParam} / {@link Header} / {@link FormParam}：String、基本类型及其包装类型、枚举，
+ *   基本类型直接转换，不经过装箱；{@link FormParam} 还支持上传文件 FileUpload
+ * - {@link Body}：String、byte[]、零拷贝的 ByteBuf / ByteBuffer / InputStream 视图，
+ *   其他类型直接从请求ByteBuf按JSON反序列化
+ *
+ * 参数缺失或格式错误时抛出 IllegalArgumentException（默认映射为400）
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public final class ParameterBinder {
+    private static final MethodHandle REQUEST;
+    private static final MethodHandle RESPONSE;
+    private static final MethodHandle PATH_PARAM;
+    private static final MethodHandle QUERY_PARAM;
+    private static final MethodHandle HEADER;
+    private static final MethodHandle FORM_PARAM;
+    private static final MethodHandle FORM_FILE;
+    private static final MethodHandle BODY_STRING;
+    private static final MethodHandle BODY_BYTES;
+    private static final MethodHandle BODY_BUF;
+    private static final MethodHandle BODY_BUFFER;
+    private static final MethodHandle BODY_STREAM;
+    private static final MethodHandle BODY_JSON;
+    private static final MethodHandle STREAMING_BODY;
+    private static final MethodHandle OR_DEFAULT;
+    private static final MethodHandle TO_ENUM;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType stringByName = MethodType.methodType(String.class, String.class);
+            REQUEST = MethodHandles.dropArguments(MethodHandles.identity(Request.class), 1, Response.class);
+            RESPONSE = MethodHandles.dropArguments(MethodHandles.identity(Response.class), 0, Request.class);
+            PATH_PARAM = lookup.findVirtual(Request.class, "getPathParam", stringByName);
+            QUERY_PARAM = lookup.findVirtual(Request.class, "getQueryParam", stringByName);
+            HEADER = lookup.findVirtual(Request.class, "getHeader", stringByName);
+            FORM_PARAM = lookup.findVirtual(Request.class, "getFormParam", stringByName);
+            FORM_FILE = lookup.findVirtual(Request.class, "getFormFile",
+                    MethodType.methodType(FileUpload.class, String.class));
+            BODY_STRING = lookup.findVirtual(Request.class, "getBody", MethodType.methodType(String.class));
+            BODY_BYTES = lookup.findStatic(ParameterBinder.class, "bodyBytes",
+                    MethodType.methodType(byte[].class, Request.class));
+            BODY_BUF = lookup.findVirtual(Request.class, "getBodyBuf", MethodType.methodType(ByteBuf.class));
+            BODY_BUFFER = lookup.findVirtual(Request.class, "getBodyBuffer", MethodType.methodType(ByteBuffer.class));
+            BODY_STREAM = lookup.findVirtual(Request.class, "getBodyStream", MethodType.methodType(InputStream.class));
+            BODY_JSON = lookup.findStatic(ParameterBinder.class, "bodyJson",
+                    MethodType.methodType(Object.class, ObjectReader.class, Request.class));
+            STREAMING_BODY = MethodHandles.dropArguments(lookup.findVirtual(Request.class, "getStreamingBody",
+                    MethodType.methodType(StreamingBody.class)), 1, Response.class);
+            OR_DEFAULT = lookup.findStatic(ParameterBinder.class, "orDefault",
+                    MethodType.methodType(String.class, String.class, String.class));
+            TO_ENUM = lookup.findStatic(ParameterBinder.class, "toEnum",
+                    MethodType.methodType(Enum.class, String.class, String.class, Class.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ParameterBinder() {
+    }
+
+    /**
+     * 解析参数绑定句柄
+     * @param parameter 方法参数
+     * @param jsonSerializer JSON序列化器，用于 {@link Body} 参数
+     * @return 类型为 (Request, Response) -> 参数类型 的方法句柄
+     * @throws IllegalArgumentException 参数无法绑定
+     */
+    public static MethodHandle resolve(Parameter parameter, JsonSerializer jsonSerializer) {
+        Class<?> type = parameter.getType();
+        if (type == Request.class) {
+            return REQUEST;
+        }
+        if (type == Response.class) {
+            return RESPONSE;
+        }
+        if (type == StreamingBody.class) {
+            if (!parameter.getDeclaringExecutable().isAnnotationPresent(Streaming.class)) {
+                throw new IllegalArgumentException("StreamingBody parameter requires @Streaming on "
+                        + parameter.getDeclaringExecutable().getName());
+            }
+            return STREAMING_BODY;
+        }
+
+        PathParam pathParam = parameter.getAnnotation(PathParam.class);
+        if (pathParam != null) {
+            return bindString(PATH_PARAM, pathParam.value(), "", "path parameter", type);
+        }
+        QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+        if (queryParam != null) {
+            return bindString(QUERY_PARAM, queryParam.value(), queryParam.defaultValue(), "query parameter", type);
+        }
+        Header header = parameter.getAnnotation(Header.class);
+        if (header != null) {
+            return bindString(HEADER, header.value(), header.defaultValue(), "header", type);
+        }
+        FormParam formParam = parameter.getAnnotation(FormParam.class);
+        if (formParam != null) {
+            if (type == FileUpload.class) {
+                return MethodHandles.dropArguments(MethodHandles.insertArguments(FORM_FILE, 1, formParam.value()),
+                        1, Response.class);
+            }
+            return bindString(FORM_PARAM, formParam.value(), formParam.defaultValue(), "form field", type);
+        }
+        if (parameter.isAnnotationPresent(Body.class)) {
+            return bindBody(parameter, jsonSerializer);
+        }
+
+        throw new IllegalArgumentException("Unbound parameter " + parameter.getName() + " of type "
+                + type.getName() + ": annotate it with @PathParam, @QueryParam, @Header, @FormParam or @Body");
+    }
+
+    /**
+     * 绑定字符串来源的参数并转换为目标类型
+     * @param getter 取值句柄，类型为 (Request, String) -> String
+     * @param name 参数名
+     * @param defaultValue 缺省值，空字符串表示没有
+     * @param source 参数来源描述，用于错误信息
+     * @param type 目标类型
+     * @return 绑定句柄
+     */
+    private static MethodHandle bindString(MethodHandle getter, String name, String defaultValue,
+                                           String source, Class<?> type) {
+        MethodHandle value = MethodHandles.insertArguments(getter, 1, name);
+        if (!defaultValue.isEmpty()) {
+            value = MethodHandles.filterReturnValue(value, MethodHandles.insertArguments(OR_DEFAULT, 1, defaultValue));
+        }
+        value = MethodHandles.filterReturnValue(value, converter(type, source + " '" + name + "'"));
+        return MethodHandles.dropArguments(value, 1, Response.class);
+    }
+
+    /**
+     * 获取 String -> 目标类型 的转换句柄
+     * @param type 目标类型
+     * @param label 参数描述，用于错误信息
+     * @return 转换句柄
+     */
+    private static MethodHandle converter(Class<?> type, String label) {
+        if (type == String.class) {
+            return MethodHandles.identity(String.class);
+        }
+        if (type.isEnum()) {
+            return MethodHandles.insertArguments(TO_ENUM, 1, label, type)
+                    .asType(MethodType.methodType(type, String.class));
+        }
+
+        String name;
+        if (type == int.class) {
+            name = "toInt";
+        } else if (type == Integer.class) {
+            name = "toInteger";
+        } else if (type == long.class) {
+            name = "toLong";
+        } else if (type == Long.class) {
+            name = "toLongObject";
+        } else if (type == double.class) {
+            name = "toDouble";
+        } else if (type == Double.class) {
+            name = "toDoubleObject";
+        } else if (type == boolean.class) {
+            name = "toBoolean";
+        } else if (type == Boolean.class) {
+            name = "toBooleanObject";
+        } else {
+            throw new IllegalArgumentException("Unsupported parameter type for " + label + ": " + type.getName());
+        }
+
+        try {
+            MethodHandle convert = MethodHandles.lookup().findStatic(ParameterBinder.class, name,
+                    MethodType.methodType(type, String.class, String.class));
+            return MethodHandles.insertArguments(convert, 1, label);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 绑定请求体参数
+     * @param parameter 方法参数
+     * @param jsonSerializer JSON序列化器
+     * @return 绑定句柄
+     */
+    private static MethodHandle bindBody(Parameter parameter, JsonSerializer jsonSerializer) {
+        Class<?> type = parameter.getType();
+        MethodHandle value;
+        if (type == String.class) {
+            value = BODY_STRING;
+        } else if (type == byte[].class) {
+            value = BODY_BYTES;
+        } else if (type == ByteBuf.class) {
+            value = BODY_BUF;
+        } else if (type == ByteBuffer.class) {
+            value = BODY_BUFFER;
+        } else if (type == InputStream.class) {
+            value = BODY_STREAM;
+        } else {
+            // 在注册阶段完成类型解析，请求时只做反序列化
+            ObjectReader reader = jsonSerializer.reader(parameter.getParameterizedType());
+            value = MethodHandles.insertArguments(BODY_JSON, 0, reader)
+                    .asType(MethodType.methodType(type, Request.class));
+        }
+        return MethodHandles.dropArguments(value, 1, Response.class);
+    }
+
+    private static byte[] bodyBytes(Request request) {
+        return ByteBufUtil.getBytes(request.getBodyBuf());
+    }
+
+    private static Object bodyJson(ObjectReader reader, Request request) {
+        ByteBuf content = request.getBodyBuf();
+        if (!content.isReadable()) {
+            return null;
+        }
+        try {
+            return JsonSerializer.read(reader, content);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid request body: " + e.getMessage(), e);
+        }
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static int toInt(String value, String label) {
+        try {
+            return Integer.parseInt(required(value, label));
+        } catch (NumberFormatException e) {
+            throw invalid(value, label);
+        }
+    }
+
+    private static Integer toInteger(String value, String label) {
+        return value != null ? toInt(value, label) : null;
+    }
+
+    private static long toLong(String value, String label) {
+        try {
+            return Long.parseLong(required(value, label));
+        } catch (NumberFormatException e) {
+            throw invalid(value, label);
+        }
+    }
+
+    private static Long toLongObject(String value, String label) {
+        return value != null ? toLong(value, label) : null;
+    }
+
+    private static double toDouble(String value, String label) {
+        try {
+            return Double.parseDouble(required(value, label));
+        } catch (NumberFormatException e) {
+            throw invalid(value, label);
+        }
+    }
+
+    private static Double toDoubleObject(String value, String label) {
+        return value != null ? toDouble(value, label) : null;
+    }
+
+    private static boolean toBoolean(String value, String label) {
+        String v = required(value, label);
+        if ("true".equalsIgnoreCase(v)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(v)) {
+            return false;
+        }
+        throw invalid(value, label);
+    }
+
+    private static Boolean toBooleanObject(String value, String label) {
+        return value != null ? toBoolean(value, label) : null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Enum<?> toEnum(String value, String label, Class type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+                throw invalid(value, label);
+            }
+        }
+    }
+
+    private static String required(String value, String label) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required " + label);
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException invalid(String value, String label) {
+        return new IllegalArgumentException("Invalid value for " + label + ": " + value);
+    }
+}
@@ -1,9 +1,16 @@
 package cn.tjh666.httpframework.routing;
 
+import cn.tjh666.httpframework.annotation.Cacheable;
+import cn.tjh666.httpframework.annotation.Coalesce;
+import cn.tjh666.httpframework.annotation.Execution;
+import cn.tjh666.httpframework.annotation.ExecutionMode;
+import cn.tjh666.httpframework.annotation.Streaming;
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.context.Response;
 import io.netty.handler.codec.http.HttpMethod;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
-import java.util.regex.Pattern;
 
 /**
  * 路由信息类
@@ -17,8 +24,15 @@ public class Route {
     private final HttpMethod httpMethod;
     private final Object controller;
     private final Method method;
-    private final Pattern pathPattern;
     private final String[] pathParamNames;
+    private final MethodHandle invoker;
+    private final ExecutionMode executionMode;
+    private final boolean streaming;
+    private final long cacheTtlNanos;
+    private final String[] cacheHeaders;
+    private final MethodHandle versionInvoker;
+    private final String[] coalesceHeaders;
+    private final long coalesceTimeoutNanos;
 
     /**
      * 构造路由对象
@@ -26,17 +40,41 @@ public class Route {
      * @param httpMethod HTTP方法
      * @param controller 控制器实例
      * @param method 处理方法
-     * @param pathPattern 路径匹配模式
-     * @param pathParamNames 路径参数名数组
+     * @param pathParamNames 路径参数名数组，按在路径中出现的顺序排列
+     * @param invoker 预链接的调用器，类型为 (Request, Response) -> Object
      */
-    public Route(String path, HttpMethod httpMethod, Object controller, Method method, 
-                 Pattern pathPattern, String[] pathParamNames) {
+    public Route(String path, HttpMethod httpMethod, Object controller, Method method,
+                 String[] pathParamNames, MethodHandle invoker) {
+        this(path, httpMethod, controller, method, pathParamNames, invoker, null);
+    }
+
+    /**
+     * 构造路由对象
+     * @param path 路由路径
+     * @param httpMethod HTTP方法
+     * @param controller 控制器实例
+     * @param method 处理方法
+     * @param pathParamNames 路径参数名数组，按在路径中出现的顺序排列
+     * @param invoker 预链接的调用器，类型为 (Request, Response) -> Object
+     * @param versionInvoker 版本方法的调用器，类型同上，没有版本方法时为null
+     */
+    public Route(String path, HttpMethod httpMethod, Object controller, Method method,
+                 String[] pathParamNames, MethodHandle invoker, MethodHandle versionInvoker) {
         this.path = path;
         this.httpMethod = httpMethod;
         this.controller = controller;
         this.method = method;
-        this.pathPattern = pathPattern;
         this.pathParamNames = pathParamNames;
+        this.invoker = invoker.asType(InvokerFactory.INVOKER_TYPE);
+        this.executionMode = resolveExecutionMode(method);
+        this.streaming = method.isAnnotationPresent(Streaming.class);
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        this.cacheTtlNanos = cacheable != null ? cacheable.unit().toNanos(cacheable.ttl()) : 0;
+        this.cacheHeaders = cacheable != null ? cacheable.headers() : new String[0];
+        this.versionInvoker = versionInvoker != null ? versionInvoker.asType(InvokerFactory.INVOKER_TYPE) : null;
+        Coalesce coalesce = method.getAnnotation(Coalesce.class);
+        this.coalesceHeaders = coalesce != null ? coalesce.headers() : null;
+        this.coalesceTimeoutNanos = coalesce != null ? coalesce.unit().toNanos(coalesce.timeout()) : 0;
     }
 
     /**
@@ -71,14 +109,6 @@ public class Route {
         return method;
     }
 
-    /**
-     * 获取路径匹配模式
-     * @return Pattern对象
-     */
-    public Pattern getPathPattern() {
-        return pathPattern;
-    }
-
     /**
      * 获取路径参数名数组
      * @return 参数名数组
@@ -87,6 +117,127 @@ public class Route {
         return pathParamNames;
     }
 
+    /**
+     * 获取执行模式
+     * @return 执行模式，未通过注解指定时为 {@link ExecutionMode#DEFAULT}
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * 是否为流式请求体路由
+     * @return 标注了 {@link Streaming} 时返回true
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 是否缓存响应
+     * @return 标注了 {@link Cacheable} 且有效期大于0时返回true
+     */
+    public boolean isCacheable() {
+        return cacheTtlNanos > 0;
+    }
+
+    /**
+     * 获取响应缓存的有效期
+     * @return 纳秒，不缓存时为0
+     */
+    public long getCacheTtlNanos() {
+        return cacheTtlNanos;
+    }
+
+    /**
+     * 获取参与缓存键的请求头
+     * @return 请求头名称数组
+     */
+    public String[] getCacheHeaders() {
+        return cacheHeaders;
+    }
+
+    /**
+     * 是否合并相同的并发请求
+     * @return 标注了 {@link Coalesce} 时返回true
+     */
+    public boolean isCoalesced() {
+        return coalesceHeaders != null;
+    }
+
+    /**
+     * 获取参与请求合并判断的请求头
+     * @return 请求头名称数组，不合并时为null
+     */
+    public String[] getCoalesceHeaders() {
+        return coalesceHeaders;
+    }
+
+    /**
+     * 获取等待进行中调用的超时
+     * @return 纳秒，不合并时为0
+     */
+    public long getCoalesceTimeoutNanos() {
+        return coalesceTimeoutNanos;
+    }
+
+    /**
+     * 是否声明了版本方法
+     * @return 标注了 {@link cn.tjh666.httpframework.annotation.Versioned} 时返回true
+     */
+    public boolean isVersioned() {
+        return versionInvoker != null;
+    }
+
+    /**
+     * 调用版本方法
+     * @param request 请求对象
+     * @param response 响应对象
+     * @return 资源版本，没有版本方法或版本未知时返回null
+     * @throws Exception 版本方法抛出的异常
+     */
+    public Object version(Request request, Response response) throws Exception {
+        if (versionInvoker == null) {
+            return null;
+        }
+        return call(versionInvoker, request, response);
+    }
+
+    /**
+     * 调用控制器方法
+     * 参数绑定已在注册时预先组合到调用器中，此处不涉及反射
+     * @param request 请求对象
+     * @param response 响应对象
+     * @return 方法返回值，void方法返回null
+     * @throws Exception 控制器方法抛出的异常
+     */
+    public Object invoke(Request request, Response response) throws Exception {
+        return call(invoker, request, response);
+    }
+
+    private static Object call(MethodHandle handle, Request request, Response response) throws Exception {
+        try {
+            return (Object) handle.invokeExact(request, response);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * 解析执行模式，方法上的注解优先于类上的注解
+     * @param method 处理方法
+     * @return 执行模式
+     */
+    private static ExecutionMode resolveExecutionMode(Method method) {
+        Execution execution = method.getAnnotation(Execution.class);
+        if (execution == null) {
+            execution = method.getDeclaringClass().getAnnotation(Execution.class);
+        }
+        return execution != null ? execution.value() : ExecutionMode.DEFAULT;
+    }
+
     @Override
     public String toString() {
         return httpMethod + " " + path;
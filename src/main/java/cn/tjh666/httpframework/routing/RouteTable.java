@@ -0,0 +1,52 @@
+package cn.tjh666.httpframework.routing;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的路由表快照
+ * 构造时为每个HTTP方法建立 {@link RouteTree}，发布后不再修改，查找时无需加锁。
+ * 路由变更时由 {@link Router} 构造新的快照整体替换
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class RouteTable {
+    static final RouteTable EMPTY = new RouteTable(Collections.emptyList());
+
+    private final List<Route> routes;
+    private final Map<HttpMethod, RouteTree> trees = new HashMap<>();
+    private final boolean streaming;
+
+    /**
+     * 编译路由表
+     * @param routes 路由列表
+     * @throws IllegalArgumentException 路径模板不合法
+     * @throws IllegalStateException 存在相同的路由
+     */
+    RouteTable(List<Route> routes) {
+        this.routes = Collections.unmodifiableList(routes);
+        boolean hasStreaming = false;
+        for (Route route : routes) {
+            trees.computeIfAbsent(route.getHttpMethod(), m -> new RouteTree()).insert(route);
+            hasStreaming |= route.isStreaming();
+        }
+        this.streaming = hasStreaming;
+    }
+
+    RouteTree tree(HttpMethod method) {
+        return trees.get(method);
+    }
+
+    List<Route> routes() {
+        return routes;
+    }
+
+    boolean hasStreamingRoutes() {
+        return streaming;
+    }
+}
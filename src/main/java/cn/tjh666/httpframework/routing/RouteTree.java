@@ -0,0 +1,215 @@
+package cn.tjh666.httpframework.routing;
+
+/**
+ * 压缩前缀树（Radix Tree）路由表
+ * 每个HTTP方法对应一棵树，节点按静态前缀压缩存储，
+ * 路径参数 {name} 作为独立的参数子节点，匹配一个完整的路径段
+ *
+ * 匹配优先级：静态子节点 > 参数子节点，静态分支匹配失败时回溯尝试参数分支。
+ * 查找过程不使用正则表达式，路径参数仅以偏移量形式记录，
+ * 查找代价只与路径长度/深度相关，与路由数量无关
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class RouteTree {
+    private final Node root = new Node("");
+    private int maxParams = 0;
+
+    /**
+     * 插入路由
+     * @param route 路由对象
+     * @throws IllegalArgumentException 路径模板不合法
+     * @throws IllegalStateException 已存在相同的路由
+     */
+    public void insert(Route route) {
+        String path = route.getPath();
+        Node node = root;
+        int params = 0;
+        int pos = 0;
+
+        while (pos < path.length()) {
+            int open = path.indexOf('{', pos);
+            if (open < 0) {
+                node = insertStatic(node, path.substring(pos));
+                break;
+            }
+            if (open > pos) {
+                node = insertStatic(node, path.substring(pos, open));
+            }
+            int close = path.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed path parameter in route: " + path);
+            }
+            // 参数必须占据一个完整的路径段
+            boolean segmentStart = open == 0 || path.charAt(open - 1) == '/';
+            boolean segmentEnd = close == path.length() - 1 || path.charAt(close + 1) == '/';
+            if (!segmentStart || !segmentEnd || close == open + 1) {
+                throw new IllegalArgumentException("Path parameter must occupy a whole segment: " + path);
+            }
+            if (node.paramChild == null) {
+                node.paramChild = new Node("");
+            }
+            node = node.paramChild;
+            params++;
+            pos = close + 1;
+        }
+
+        if (node.route != null) {
+            throw new IllegalStateException("Duplicate route: " + route + " conflicts with " + node.route);
+        }
+        node.route = route;
+        maxParams = Math.max(maxParams, params);
+    }
+
+    /**
+     * 查找匹配的路由
+     * @param path 已解码的请求路径
+     * @param captures 参数偏移量数组，长度至少为 {@link #captureSize()}，
+     *                 第i个参数的值为 path.substring(captures[2i], captures[2i+1])
+     * @return 匹配的路由，未找到返回null
+     */
+    public Route find(String path, int[] captures) {
+        return match(root, path, 0, captures, 0);
+    }
+
+    /**
+     * 获取查找时所需的偏移量数组长度
+     * @return 数组长度
+     */
+    public int captureSize() {
+        return maxParams * 2;
+    }
+
+    /**
+     * 在节点下插入静态片段，必要时拆分已有边
+     * @param node 起始节点
+     * @param text 静态片段
+     * @return 片段末尾所在的节点
+     */
+    private Node insertStatic(Node node, String text) {
+        int pos = 0;
+        while (pos < text.length()) {
+            Node child = node.staticChild(text.charAt(pos));
+            if (child == null) {
+                child = new Node(text.substring(pos));
+                node.addStaticChild(child);
+                return child;
+            }
+
+            String prefix = child.prefix;
+            int common = 0;
+            int max = Math.min(prefix.length(), text.length() - pos);
+            while (common < max && prefix.charAt(common) == text.charAt(pos + common)) {
+                common++;
+            }
+
+            if (common < prefix.length()) {
+                // 拆分边：child 变为新中间节点的子节点
+                Node split = new Node(prefix.substring(0, common));
+                node.replaceStaticChild(child, split);
+                child.prefix = prefix.substring(common);
+                split.addStaticChild(child);
+                child = split;
+            }
+
+            node = child;
+            pos += common;
+        }
+        return node;
+    }
+
+    /**
+     * 递归匹配节点
+     * @param node 当前节点
+     * @param path 请求路径
+     * @param pos 当前匹配位置
+     * @param captures 参数偏移量
+     * @param index 当前参数序号
+     * @return 匹配的路由
+     */
+    private Route match(Node node, String path, int pos, int[] captures, int index) {
+        String prefix = node.prefix;
+        if (!path.startsWith(prefix, pos)) {
+            return null;
+        }
+        pos += prefix.length();
+
+        if (pos == path.length()) {
+            return node.route;
+        }
+
+        // 静态分支优先
+        Node child = node.staticChild(path.charAt(pos));
+        if (child != null) {
+            Route route = match(child, path, pos, captures, index);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        // 参数分支：匹配到下一个 '/' 为止，且不能为空
+        if (node.paramChild != null) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > pos) {
+                captures[index * 2] = pos;
+                captures[index * 2 + 1] = end;
+                return match(node.paramChild, path, end, captures, index + 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 树节点
+     */
+    private static class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String prefix;
+        char[] indices = new char[0];
+        Node[] children = NO_CHILDREN;
+        Node paramChild;
+        Route route;
+
+        Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        Node staticChild(char c) {
+            char[] idx = indices;
+            for (int i = 0; i < idx.length; i++) {
+                if (idx[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addStaticChild(Node child) {
+            int n = children.length;
+            char[] newIndices = new char[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(indices, 0, newIndices, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newIndices[n] = child.prefix.charAt(0);
+            newChildren[n] = child;
+            indices = newIndices;
+            children = newChildren;
+        }
+
+        void replaceStaticChild(Node oldChild, Node newChild) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == oldChild) {
+                    children[i] = newChild;
+                    indices[i] = newChild.prefix.charAt(0);
+                    return;
+                }
+            }
+        }
+    }
+}
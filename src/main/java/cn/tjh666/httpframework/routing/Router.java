@@ -2,48 +2,122 @@ package cn.tjh666.httpframework.routing;
 
 import cn.tjh666.httpframework.annotation.*;
 import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.json.JsonSerializer;
 import io.netty.handler.codec.http.HttpMethod;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 路由器
  * 负责路由注册、匹配和参数提取
+ * 路由按HTTP方法分别存放在 {@link RouteTree} 中，静态路径优先于路径参数
+ *
+ * 服务器运行期间可以注册、注销和替换控制器：每次变更编译一份新的不可变路由表并整体替换（写时复制），
+ * 事件循环上的查找只读取一次当前路由表，不加锁。未变更的路由对象在新表中复用，已预热的调用器无需重新编译
  * 
  * @author Schrobit
  * @email admin@tjh666.cn
  */
 public class Router {
-    private final List<Route> routes = new ArrayList<>();
+    private final JsonSerializer jsonSerializer;
+    private volatile RouteTable table = RouteTable.EMPTY;
+
+    /**
+     * 构造路由器，使用默认的JSON序列化器绑定请求体参数
+     */
+    public Router() {
+        this(new JsonSerializer());
+    }
+
+    /**
+     * 构造路由器
+     * @param jsonSerializer JSON序列化器，用于请求体参数绑定
+     */
+    public Router(JsonSerializer jsonSerializer) {
+        this.jsonSerializer = jsonSerializer;
+    }
 
     /**
      * 注册控制器类
      * @param controllerClass 控制器类
+     * @throws IllegalStateException 与已有路由冲突，此时路由表保持不变
      */
     public void register(Class<?> controllerClass) {
+        List<Route> added = compile(controllerClass);
+        synchronized (this) {
+            List<Route> routes = new ArrayList<>(table.routes());
+            routes.addAll(added);
+            table = new RouteTable(routes);
+        }
+    }
+
+    /**
+     * 注销控制器类的所有路由
+     * 正在处理的请求不受影响，之后的请求不再匹配这些路由
+     * @param controllerClass 控制器类
+     * @return 存在该控制器的路由时返回true
+     */
+    public boolean unregister(Class<?> controllerClass) {
+        synchronized (this) {
+            List<Route> routes = withoutController(controllerClass);
+            if (routes.size() == table.routes().size()) {
+                return false;
+            }
+            table = new RouteTable(routes);
+            return true;
+        }
+    }
+
+    /**
+     * 替换控制器：在一次切换中注销旧控制器的路由并注册新控制器的路由，
+     * 查找时不会看到两者都不存在或同时存在的中间状态
+     * @param oldClass 要替换的控制器类
+     * @param newClass 新的控制器类
+     * @throws IllegalStateException 新路由与其他控制器的路由冲突，此时路由表保持不变
+     */
+    public void replace(Class<?> oldClass, Class<?> newClass) {
+        List<Route> added = compile(newClass);
+        synchronized (this) {
+            List<Route> routes = withoutController(oldClass);
+            routes.addAll(added);
+            table = new RouteTable(routes);
+        }
+    }
+
+    /**
+     * 实例化控制器并为其所有路由方法创建调用器，在切换路由表之前完成
+     * @param controllerClass 控制器类
+     * @return 路由列表
+     */
+    private List<Route> compile(Class<?> controllerClass) {
+        List<Route> routes = new ArrayList<>();
         try {
             Object controller = controllerClass.newInstance();
             Method[] methods = controllerClass.getDeclaredMethods();
             
             for (Method method : methods) {
-                registerMethod(controller, method);
+                Route route = compileMethod(controller, method);
+                if (route != null) {
+                    routes.add(route);
+                }
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to register controller: " + controllerClass.getName(), e);
         }
+        return routes;
     }
 
     /**
-     * 注册单个方法
+     * 编译单个方法
      * @param controller 控制器实例
      * @param method 方法对象
+     * @return 路由，方法没有HTTP方法注解时返回null
      */
-    private void registerMethod(Object controller, Method method) {
+    private Route compileMethod(Object controller, Method method) {
         String path = null;
         HttpMethod httpMethod = null;
         
@@ -62,13 +136,58 @@ public class Router {
             httpMethod = HttpMethod.DELETE;
         }
         
-        if (path != null && httpMethod != null) {
-            // 解析路径参数
-            PathInfo pathInfo = parsePath(path);
-            Route route = new Route(path, httpMethod, controller, method, 
-                                  pathInfo.pattern, pathInfo.paramNames);
-            routes.add(route);
+        if (path == null) {
+            return null;
         }
+        if (method.isAnnotationPresent(Cacheable.class) && httpMethod != HttpMethod.GET) {
+            throw new IllegalStateException("@Cacheable is only supported on GET routes: " + method);
+        }
+        if (method.isAnnotationPresent(Coalesce.class) && httpMethod != HttpMethod.GET) {
+            throw new IllegalStateException("@Coalesce is only supported on GET routes: " + method);
+        }
+        MethodHandle versionInvoker = null;
+        Versioned versioned = method.getAnnotation(Versioned.class);
+        if (versioned != null) {
+            if (httpMethod != HttpMethod.GET) {
+                throw new IllegalStateException("@Versioned is only supported on GET routes: " + method);
+            }
+            versionInvoker = InvokerFactory.create(controller, findVersionMethod(method, versioned.value()), jsonSerializer);
+        }
+        // 解析路径参数
+        return new Route(path, httpMethod, controller, method, parseParamNames(path),
+                         InvokerFactory.create(controller, method, jsonSerializer), versionInvoker);
+    }
+
+    /**
+     * 在路由方法所在的类中查找版本方法
+     * @param method 路由方法
+     * @param name 版本方法名
+     * @return 版本方法
+     * @throws IllegalStateException 不存在、存在重载或返回void
+     */
+    private Method findVersionMethod(Method method, String name) {
+        Method found = null;
+        for (Method candidate : method.getDeclaringClass().getDeclaredMethods()) {
+            if (candidate.getName().equals(name)) {
+                if (found != null) {
+                    throw new IllegalStateException("Ambiguous @Versioned method '" + name + "' for " + method);
+                }
+                found = candidate;
+            }
+        }
+        if (found == null || found.getReturnType() == void.class) {
+            throw new IllegalStateException("@Versioned method '" + name + "' not found or returns void: " + method);
+        }
+        return found;
+    }
+
+    /**
+     * 复制当前路由列表并去掉指定控制器的路由（调用方持有锁）
+     */
+    private List<Route> withoutController(Class<?> controllerClass) {
+        List<Route> routes = new ArrayList<>(table.routes());
+        routes.removeIf(route -> route.getController().getClass() == controllerClass);
+        return routes;
     }
 
     /**
@@ -77,91 +196,71 @@ public class Router {
      * @return 匹配的路由，如果没有找到返回null
      */
     public Route findRoute(Request request) {
+        RouteTree tree = table.tree(request.getMethod());
+        if (tree == null) {
+            return null;
+        }
+
         String requestPath = request.getUri();
-        HttpMethod requestMethod = request.getMethod();
-        
-        for (Route route : routes) {
-            if (route.getHttpMethod().equals(requestMethod)) {
-                Matcher matcher = route.getPathPattern().matcher(requestPath);
-                if (matcher.matches()) {
-                    // 提取路径参数
-                    extractPathParams(request, route, matcher);
-                    return route;
-                }
-            }
+        int[] captures = new int[tree.captureSize()];
+        Route route = tree.find(requestPath, captures);
+        if (route != null) {
+            // 提取路径参数
+            extractPathParams(request, route, requestPath, captures);
         }
-        
-        return null;
+        return route;
     }
 
     /**
      * 提取路径参数
      * @param request 请求对象
      * @param route 路由对象
-     * @param matcher 匹配器
+     * @param requestPath 请求路径
+     * @param captures 参数偏移量
      */
-    private void extractPathParams(Request request, Route route, Matcher matcher) {
+    private void extractPathParams(Request request, Route route, String requestPath, int[] captures) {
         String[] paramNames = route.getPathParamNames();
         if (paramNames != null) {
             for (int i = 0; i < paramNames.length; i++) {
-                String paramValue = matcher.group(i + 1);
+                String paramValue = requestPath.substring(captures[i * 2], captures[i * 2 + 1]);
                 request.setPathParam(paramNames[i], paramValue);
             }
         }
     }
 
     /**
-     * 解析路径，提取参数名和生成正则表达式
+     * 解析路径，按顺序提取参数名
      * @param path 路径字符串
-     * @return 路径信息
+     * @return 参数名数组，没有参数时返回null
      */
-    private PathInfo parsePath(String path) {
+    private String[] parseParamNames(String path) {
         List<String> paramNames = new ArrayList<>();
-        String regex = path;
-        
-        // 查找路径参数 {paramName}
-        Pattern paramPattern = Pattern.compile("\\{([^}]+)\\}");
-        Matcher matcher = paramPattern.matcher(path);
-        
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
-            paramNames.add(paramName);
-            // 将 {paramName} 替换为 ([^/]+)
-            regex = regex.replace("{" + paramName + "}", "([^/]+)");
-        }
-        
-        // 确保路径完全匹配
-        if (!regex.endsWith("$")) {
-            regex += "$";
-        }
-        if (!regex.startsWith("^")) {
-            regex = "^" + regex;
+        int open = path.indexOf('{');
+        while (open >= 0) {
+            int close = path.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            paramNames.add(path.substring(open + 1, close));
+            open = path.indexOf('{', close);
         }
-        
-        Pattern pattern = Pattern.compile(regex);
-        String[] paramArray = paramNames.isEmpty() ? null : paramNames.toArray(new String[0]);
-        
-        return new PathInfo(pattern, paramArray);
+        return paramNames.isEmpty() ? null : paramNames.toArray(new String[0]);
     }
 
     /**
-     * 路径信息内部类
+     * 是否注册了流式请求体路由
+     * 没有时流式请求处理器直接放行所有请求，不做额外的路由匹配
+     * @return 存在 {@link Streaming} 路由时返回true
      */
-    private static class PathInfo {
-        final Pattern pattern;
-        final String[] paramNames;
-        
-        PathInfo(Pattern pattern, String[] paramNames) {
-            this.pattern = pattern;
-            this.paramNames = paramNames;
-        }
+    public boolean hasStreamingRoutes() {
+        return table.hasStreamingRoutes();
     }
 
     /**
      * 获取所有注册的路由
-     * @return 路由列表
+     * @return 当前路由表中的路由列表
      */
     public List<Route> getRoutes() {
-        return new ArrayList<>(routes);
+        return new ArrayList<>(table.routes());
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 监听套接字的连接接受统计
+ * 每个监听套接字（acceptor）一个实例，作为处理器安装在服务端通道上，每接受一个连接计数一次
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@ChannelHandler.Sharable
+public class AcceptorStats extends ChannelInboundHandlerAdapter {
+    private final int index;
+    private final LongAdder accepted = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile SocketAddress localAddress;
+    private long lastSampleCount;
+    private long lastSampleNanos = startNanos;
+
+    /**
+     * 构造统计对象
+     * @param index 监听套接字序号，从0开始
+     */
+    public AcceptorStats(int index) {
+        this.index = index;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        localAddress = ctx.channel().localAddress();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        // 服务端通道读到的每条消息都是一个新接受的连接
+        accepted.increment();
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * 获取监听套接字序号
+     * @return 序号
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 获取监听地址
+     * @return 本地地址，绑定前为null
+     */
+    public SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * 获取累计接受的连接数
+     * @return 连接数
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * 获取启动以来的平均接受速率
+     * @return 每秒接受的连接数
+     */
+    public double getAverageRate() {
+        return perSecond(accepted.sum(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 采样接受速率：返回距上次采样以来的每秒接受连接数
+     * 适合由监控任务定期调用
+     * @return 每秒接受的连接数
+     */
+    public synchronized double sampleRate() {
+        long count = accepted.sum();
+        long now = System.nanoTime();
+        double rate = perSecond(count - lastSampleCount, now - lastSampleNanos);
+        lastSampleCount = count;
+        lastSampleNanos = now;
+        return rate;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos > 0 ? count * 1_000_000_000.0 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "acceptor-" + index + " " + localAddress + " accepted=" + getAccepted();
+    }
+}
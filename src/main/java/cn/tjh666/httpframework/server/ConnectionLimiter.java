@@ -0,0 +1,140 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接数限制
+ * 安装在所有监听套接字上（多个acceptor共享一个实例），在接受连接时检查全局连接数和单个客户端IP的连接数，
+ * 超过上限的连接在注册到事件循环之前直接关闭，不分配管道和缓冲区
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+@ChannelHandler.Sharable
+public class ConnectionLimiter extends ChannelInboundHandlerAdapter {
+    private final int maxConnections;
+    private final int maxConnectionsPerIp;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final ConcurrentHashMap<InetAddress, Integer> perIp = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedPerIp = new LongAdder();
+
+    /**
+     * 构造连接数限制
+     * @param maxConnections 全局最大连接数，0表示不限制
+     * @param maxConnectionsPerIp 单个客户端IP的最大连接数，0表示不限制
+     */
+    public ConnectionLimiter(int maxConnections, int maxConnectionsPerIp) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        Channel child = (Channel) msg;
+        if (!tryAcquire(child)) {
+            // 尚未注册的连接直接关闭
+            child.unsafe().closeForcibly();
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private boolean tryAcquire(Channel child) {
+        int count = active.incrementAndGet();
+        if (maxConnections > 0 && count > maxConnections) {
+            active.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+
+        InetAddress address = addressOf(child.remoteAddress());
+        if (address != null) {
+            int fromIp = perIp.merge(address, 1, Integer::sum);
+            if (maxConnectionsPerIp > 0 && fromIp > maxConnectionsPerIp) {
+                release(address);
+                active.decrementAndGet();
+                rejectedPerIp.increment();
+                return false;
+            }
+        }
+
+        peak.accumulateAndGet(count, Math::max);
+        child.closeFuture().addListener(future -> {
+            active.decrementAndGet();
+            if (address != null) {
+                release(address);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 减少IP的连接数，归零时移除计数，避免保留已断开客户端的记录
+     */
+    private void release(InetAddress address) {
+        perIp.computeIfPresent(address, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static InetAddress addressOf(SocketAddress address) {
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getAddress() : null;
+    }
+
+    /**
+     * 获取当前连接数
+     * @return 连接数
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * 获取启动以来的最大同时连接数
+     * @return 连接数
+     */
+    public int getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * 获取指定IP当前的连接数
+     * @param address 客户端IP
+     * @return 连接数
+     */
+    public int getActive(InetAddress address) {
+        return perIp.getOrDefault(address, 0);
+    }
+
+    /**
+     * 获取因超过全局上限被拒绝的连接数
+     * @return 连接数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 获取因超过单IP上限被拒绝的连接数
+     * @return 连接数
+     */
+    public long getRejectedPerIp() {
+        return rejectedPerIp.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getActive() + " peak=" + getPeak() + " rejected=" + getRejected()
+                + " rejectedPerIp=" + getRejectedPerIp();
+    }
+}
@@ -0,0 +1,233 @@
+package cn.tjh666.httpframework.server;
+
+import cn.tjh666.httpframework.context.ReadSuspension;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.timeout.IdleStateEvent;
+
+import java.net.SocketAddress;
+import java.util.Collection;
+
+/**
+ * 连接统计、写背压与排空
+ * 每个连接一个实例，安装在连接管道的最前面（套接字一侧）：
+ * - 统计写入连接的字节数（HTTPS时为加密后的字节数）和尚未写入套接字的待发送字节数
+ * - 待发送数据超过写缓冲区高水位（连接不可写）时暂停读取，低于低水位后恢复，
+ *   客户端读取过慢时服务器不再继续接收新请求、堆积更多响应
+ * - 记录连接上正在处理的请求数（HTTP/2 为所有流之和），优雅停机时据此排空连接
+ * - 空闲超时时关闭没有请求在处理的连接
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ConnectionStats extends ChannelDuplexHandler {
+    private final Collection<ConnectionStats> registry;
+    private final ConnectionTimeouts timeouts;
+    private volatile Channel channel;
+    private volatile long bytesQueued;
+    private volatile long suspensions;
+    private volatile int inFlight;
+    private volatile boolean draining;
+
+    /**
+     * 构造连接统计
+     * @param registry 活动连接集合，添加到管道时加入，连接关闭后移除；为null时不登记
+     * @param timeouts 超时配置，空闲超时事件由本处理器关闭连接
+     */
+    public ConnectionStats(Collection<ConnectionStats> registry, ConnectionTimeouts timeouts) {
+        this.registry = registry;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        channel = ctx.channel();
+        if (registry != null) {
+            registry.add(this);
+            channel.closeFuture().addListener(future -> registry.remove(this));
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // 只在事件循环线程上更新，其他线程只读
+        bytesQueued += sizeOf(msg);
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 排空或流式请求体暂停的读取不受可写性变化影响
+        ReadSuspension suspension = ReadSuspension.of(ctx.channel());
+        if (ctx.channel().isWritable()) {
+            suspension.resume(ReadSuspension.Reason.BACKPRESSURE);
+        } else {
+            suspensions++;
+            suspension.suspend(ReadSuspension.Reason.BACKPRESSURE);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            // 空闲超时只回收没有请求在处理的连接，处理时间由请求超时限制
+            if (inFlight == 0) {
+                timeouts.idleClosed();
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    /**
+     * 开始处理一个请求（在事件循环线程上调用）
+     */
+    void requestStarted() {
+        inFlight++;
+    }
+
+    /**
+     * 一个请求的响应已写完或其流已关闭（在事件循环线程上调用）
+     * 排空中的连接在最后一个请求完成后关闭
+     */
+    void requestCompleted() {
+        if (--inFlight == 0 && draining) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 开始排空连接，可在任意线程调用
+     * 停止读取新请求；没有正在处理的请求时立即关闭，否则等最后一个响应写完后关闭
+     * （该响应带 Connection: close）。HTTP/2 连接直接关闭，由编解码器发送GOAWAY并等待已有的流完成
+     */
+    public void drain() {
+        Channel ch = channel;
+        if (ch == null) {
+            return;
+        }
+        ch.eventLoop().execute(() -> {
+            draining = true;
+            ReadSuspension.of(ch).suspend(ReadSuspension.Reason.DRAIN);
+            if (inFlight == 0 || ch.pipeline().get(Http2FrameCodec.class) != null) {
+                ch.close();
+            }
+        });
+    }
+
+    /**
+     * 获取连接的关闭通知
+     * @return 关闭future，添加到管道前返回null
+     */
+    ChannelFuture closeFuture() {
+        Channel ch = channel;
+        return ch != null ? ch.closeFuture() : null;
+    }
+
+    /**
+     * 立即关闭连接，不等待正在处理的请求
+     */
+    void forceClose() {
+        Channel ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    /**
+     * 连接是否仍然打开
+     * @return 打开返回true
+     */
+    public boolean isOpen() {
+        Channel ch = channel;
+        return ch != null && ch.isOpen();
+    }
+
+    private static long sizeOf(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        if (msg instanceof FileRegion) {
+            return ((FileRegion) msg).count();
+        }
+        return 0;
+    }
+
+    /**
+     * 获取客户端地址
+     * @return 远端地址
+     */
+    public SocketAddress getRemoteAddress() {
+        return channel != null ? channel.remoteAddress() : null;
+    }
+
+    /**
+     * 获取已写入套接字的字节数
+     * @return 字节数
+     */
+    public long getBytesWritten() {
+        return bytesQueued - getPendingOutboundBytes();
+    }
+
+    /**
+     * 获取已写入管道、尚未写入套接字的字节数
+     * @return 字节数，连接关闭后为0
+     */
+    public long getPendingOutboundBytes() {
+        Channel ch = channel;
+        ChannelOutboundBuffer buffer = ch != null ? ch.unsafe().outboundBuffer() : null;
+        return buffer != null ? buffer.totalPendingWriteBytes() : 0;
+    }
+
+    /**
+     * 连接当前是否可写（待发送字节数低于高水位）
+     * @return 可写返回true
+     */
+    public boolean isWritable() {
+        Channel ch = channel;
+        return ch != null && ch.isWritable();
+    }
+
+    /**
+     * 获取连接上正在处理的请求数
+     * @return 已收到请求头、响应尚未写完的请求数
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 连接是否正在排空
+     * @return 排空中返回true
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * 获取因不可写而暂停读取的次数
+     * @return 次数
+     */
+    public long getSuspensions() {
+        return suspensions;
+    }
+
+    @Override
+    public String toString() {
+        return getRemoteAddress() + " written=" + getBytesWritten() + " pending=" + getPendingOutboundBytes()
+                + " suspensions=" + suspensions + " inFlight=" + inFlight;
+    }
+}
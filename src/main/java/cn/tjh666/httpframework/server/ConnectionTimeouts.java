@@ -0,0 +1,95 @@
+package cn.tjh666.httpframework.server;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接与请求超时配置及计数
+ * - 空闲超时：连接上没有正在处理的请求且在此期间没有读写时关闭，回收空闲的keep-alive连接
+ * - 请求头超时：从收到请求的第一个字节（HTTPS包括TLS握手）到请求头解析完成的期限，超时返回408并关闭连接，
+ *   防止慢速发送请求头的客户端长期占用连接
+ * - 请求超时：从请求头解析完成到响应写完的期限，超时时尚未开始响应则返回503，然后关闭连接（HTTP/2 为重置该流）
+ *
+ * 期限为0表示不限制。所有连接共享一个实例，计数用于评估文件描述符和内存的占用
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ConnectionTimeouts {
+    private final long idleNanos;
+    private final long headerNanos;
+    private final long requestNanos;
+    private final LongAdder idleClosed = new LongAdder();
+    private final LongAdder headerTimeouts = new LongAdder();
+    private final LongAdder requestTimeouts = new LongAdder();
+
+    /**
+     * 构造超时配置
+     * @param idle 空闲超时，null或0表示不限制
+     * @param header 请求头超时，null或0表示不限制
+     * @param request 请求超时，null或0表示不限制
+     */
+    public ConnectionTimeouts(Duration idle, Duration header, Duration request) {
+        this.idleNanos = toNanos(idle);
+        this.headerNanos = toNanos(header);
+        this.requestNanos = toNanos(request);
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration != null ? duration.toNanos() : 0;
+    }
+
+    long getIdleNanos() {
+        return idleNanos;
+    }
+
+    long getHeaderNanos() {
+        return headerNanos;
+    }
+
+    long getRequestNanos() {
+        return requestNanos;
+    }
+
+    void idleClosed() {
+        idleClosed.increment();
+    }
+
+    void headerTimedOut() {
+        headerTimeouts.increment();
+    }
+
+    void requestTimedOut() {
+        requestTimeouts.increment();
+    }
+
+    /**
+     * 获取因空闲超时关闭的连接数
+     * @return 连接数
+     */
+    public long getIdleClosed() {
+        return idleClosed.sum();
+    }
+
+    /**
+     * 获取请求头超时次数
+     * @return 次数
+     */
+    public long getHeaderTimeouts() {
+        return headerTimeouts.sum();
+    }
+
+    /**
+     * 获取请求超时次数
+     * @return 次数
+     */
+    public long getRequestTimeouts() {
+        return requestTimeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "idleClosed=" + getIdleClosed() + " headerTimeouts=" + getHeaderTimeouts()
+                + " requestTimeouts=" + getRequestTimeouts();
+    }
+}
@@ -0,0 +1,77 @@
+package cn.tjh666.httpframework.server;
+
+/**
+ * 优雅停机的排空结果
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class DrainResult {
+    private final int connections;
+    private final int drained;
+    private final int forced;
+    private final int abandonedRequests;
+    private final long elapsedMillis;
+
+    /**
+     * 构造排空结果
+     * @param connections 开始排空时的连接数
+     * @param drained 在期限内处理完请求并关闭的连接数
+     * @param forced 期限到达后强制关闭的连接数
+     * @param abandonedRequests 强制关闭时仍未完成的请求数
+     * @param elapsedMillis 排空耗时（毫秒）
+     */
+    public DrainResult(int connections, int drained, int forced, int abandonedRequests, long elapsedMillis) {
+        this.connections = connections;
+        this.drained = drained;
+        this.forced = forced;
+        this.abandonedRequests = abandonedRequests;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 获取开始排空时的连接数
+     * @return 连接数
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * 获取在期限内正常关闭的连接数
+     * @return 连接数
+     */
+    public int getDrained() {
+        return drained;
+    }
+
+    /**
+     * 获取期限到达后强制关闭的连接数
+     * @return 连接数
+     */
+    public int getForced() {
+        return forced;
+    }
+
+    /**
+     * 获取强制关闭时仍未完成的请求数
+     * @return 请求数
+     */
+    public int getAbandonedRequests() {
+        return abandonedRequests;
+    }
+
+    /**
+     * 获取排空耗时
+     * @return 毫秒数
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "drained " + drained + "/" + connections + " connections in " + elapsedMillis + " ms, force-closed "
+                + forced + " (" + abandonedRequests + " requests abandoned)";
+    }
+}
@@ -0,0 +1,281 @@
+package cn.tjh666.httpframework.server;
+
+import cn.tjh666.httpframework.handler.HttpRequestHandler;
+import cn.tjh666.httpframework.handler.RequestDispatcher;
+import cn.tjh666.httpframework.handler.SequencedAggregator;
+import cn.tjh666.httpframework.handler.StreamingRequestHandler;
+import cn.tjh666.httpframework.routing.Router;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 连接管道初始化器
+ * 按服务器配置为每个新连接组装处理器：
+ * - 连接统计：位于管道最前面（启用空闲超时时在空闲检测之后），统计写出字节数，连接不可写时暂停读取
+ * - 刷新合并：位于HTTP处理器之前（HTTPS时在SSL处理器之后），一次读取产生的多个响应合并为一次套接字写入
+ * - HTTP/1.1：编解码器 → 请求跟踪与超时 → [流式请求处理器] → 聚合器 → 请求处理器
+ * - HTTPS：SSL处理器，启用HTTP/2时通过ALPN协商 h2 或 http/1.1
+ * - 协议探测：HTTPS端口同时接受明文连接时，先由 {@link ProtocolDetector} 根据首个字节判断是否为TLS，再组装对应的管道
+ * - 明文HTTP/2（h2c）：支持 Upgrade: h2c 升级和直接发送连接前言（prior knowledge）
+ *
+ * HTTP/2 连接上的每个流是一个独立的子通道，流上的帧转换为HTTP/1.1对象后
+ * 使用与HTTP/1.1相同的处理器链，经同一个 {@link Router} 分发
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class HttpChannelInitializer extends ChannelInitializer<Channel> {
+    private static final String FLUSH_CONSOLIDATION = "flushConsolidation";
+    private static final String IN_FLIGHT = "inFlight";
+    private static final String STREAMING_HANDLER = "streaming";
+    private static final String AGGREGATOR = "aggregator";
+    private static final String REQUEST_HANDLER = "handler";
+
+    private final Router router;
+    private final RequestDispatcher dispatcher;
+    private final Supplier<SslContext> sslContext;
+    private final TlsStats tlsStats;
+    private final boolean detectProtocol;
+    private final boolean http2;
+    private final int maxContentLength;
+    private final int flushConsolidation;
+    private final Collection<ConnectionStats> connections;
+    private final ConnectionTimeouts timeouts;
+
+    /**
+     * 构造初始化器
+     * @param router 路由器
+     * @param dispatcher 请求分发器
+     * @param sslContext SSL上下文，每个TLS连接建立时读取一次（支持热加载），为null时使用明文HTTP
+     * @param tlsStats TLS握手统计，为null时不统计
+     * @param detectProtocol 设置了SSL上下文时是否同时接受明文连接（按首个字节区分TLS和明文）
+     * @param http2 是否启用HTTP/2
+     * @param maxContentLength 聚合请求的最大请求体长度
+     * @param flushConsolidation 累计多少次刷新后强制写入套接字，0表示不合并刷新
+     * @param connections 活动连接的统计集合，为null时不登记
+     * @param timeouts 空闲、请求头和请求超时
+     */
+    public HttpChannelInitializer(Router router, RequestDispatcher dispatcher, Supplier<SslContext> sslContext, TlsStats tlsStats,
+                                  boolean detectProtocol, boolean http2, int maxContentLength, int flushConsolidation,
+                                  Collection<ConnectionStats> connections, ConnectionTimeouts timeouts) {
+        this.router = router;
+        this.dispatcher = dispatcher;
+        this.sslContext = sslContext;
+        this.tlsStats = tlsStats;
+        this.detectProtocol = detectProtocol;
+        this.http2 = http2;
+        this.maxContentLength = maxContentLength;
+        this.flushConsolidation = flushConsolidation;
+        this.connections = connections;
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * HTTP/2 的ALPN配置：优先 h2，其次 http/1.1
+     * 用于构建支持HTTP/2的SSL上下文
+     * @return ALPN配置
+     */
+    public static ApplicationProtocolConfig alpnConfig() {
+        return new ApplicationProtocolConfig(
+                ApplicationProtocolConfig.Protocol.ALPN,
+                ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                ApplicationProtocolNames.HTTP_2,
+                ApplicationProtocolNames.HTTP_1_1);
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline pipeline = ch.pipeline();
+        if (timeouts.getIdleNanos() > 0) {
+            // 读写都空闲时触发，由连接统计处理器判断是否关闭
+            pipeline.addLast(new IdleStateHandler(0, 0, timeouts.getIdleNanos(), TimeUnit.NANOSECONDS));
+        }
+        pipeline.addLast(new ConnectionStats(connections, timeouts));
+
+        if (sslContext != null && detectProtocol) {
+            // 收到首个字节后再决定是否安装SSL处理器
+            pipeline.addLast(new ProtocolDetector(this));
+            return;
+        }
+        configureProtocol(pipeline, sslContext != null);
+    }
+
+    /**
+     * 组装连接统计之后的协议处理器
+     * 由 {@link ProtocolDetector} 探测出协议后调用时，探测器位于管道末尾，处理器依次添加在它之后
+     * @param pipeline 管道
+     * @param tls 是否为TLS连接
+     */
+    void configureProtocol(ChannelPipeline pipeline, boolean tls) {
+        if (tls) {
+            // SSL处理器放在统计之后，用于处理TLS握手和加密/解密
+            SslHandler sslHandler = sslContext.get().newHandler(pipeline.channel().alloc());
+            if (tlsStats != null) {
+                pipeline.addLast(new TlsHandshakeRecorder(tlsStats, sslHandler));
+            }
+            pipeline.addLast(sslHandler);
+        }
+        addFlushConsolidation(pipeline);
+
+        if (http2) {
+            if (!tls) {
+                configureCleartext(pipeline);
+                return;
+            }
+            // 握手完成后根据ALPN协商结果组装管道，客户端不支持ALPN时使用HTTP/1.1
+            pipeline.addLast(new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+                @Override
+                protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+                    if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                        configureHttp2(ctx.pipeline());
+                    } else {
+                        ctx.pipeline().addLast(new HttpServerCodec());
+                        configureHttp1(ctx.pipeline());
+                    }
+                }
+            });
+            return;
+        }
+
+        // 添加HTTP编解码器（处理HTTP协议，位于SSL层之上）
+        pipeline.addLast(new HttpServerCodec());
+        configureHttp1(pipeline);
+    }
+
+    /**
+     * 添加刷新合并处理器
+     * 读取过程中的刷新推迟到读取结束（channelReadComplete）时统一执行，管道化请求和keep-alive突发的响应
+     * 合并为一次write系统调用；读取之外（控制器异步完成）的刷新在事件循环的下一轮合并执行。
+     * HTTPS时位于SSL处理器之后，合并后的明文一次加密，产生更少、更大的TLS记录
+     * @param pipeline 管道
+     */
+    private void addFlushConsolidation(ChannelPipeline pipeline) {
+        if (flushConsolidation > 0) {
+            pipeline.addLast(FLUSH_CONSOLIDATION, new FlushConsolidationHandler(flushConsolidation, true));
+        }
+    }
+
+    /**
+     * 组装HTTP/1.1请求处理器（位于编解码器之后）
+     * HTTP/2 流的子通道也使用这组处理器
+     * @param pipeline 管道
+     */
+    private void configureHttp1(ChannelPipeline pipeline) {
+        // 跟踪正在处理的请求（HTTP/2 流计入父通道）并执行请求头和请求超时
+        Channel connection = pipeline.channel() instanceof Http2StreamChannel ? pipeline.channel().parent() : pipeline.channel();
+        pipeline.addLast(IN_FLIGHT, new InFlightHandler(connection.pipeline().get(ConnectionStats.class), timeouts));
+
+        // 流式路由的请求在聚合之前分发，请求体按需读取
+        // 路由表可在运行时替换，处理器始终安装，没有流式路由时逐个请求直接放行
+        pipeline.addLast(STREAMING_HANDLER, new StreamingRequestHandler(router, dispatcher));
+
+        // 添加HTTP对象聚合器，将HTTP消息聚合为FullHttpRequest，100 Continue 和 413 按请求顺序写出
+        pipeline.addLast(AGGREGATOR, new SequencedAggregator(maxContentLength, dispatcher.getJsonSerializer()));
+
+        // 添加自定义请求处理器
+        pipeline.addLast(REQUEST_HANDLER, new HttpRequestHandler(router, dispatcher));
+    }
+
+    /**
+     * 组装HTTP/2连接处理器：帧编解码器负责HPACK和流控，多路复用处理器为每个流创建子通道
+     * @param pipeline 管道
+     */
+    private void configureHttp2(ChannelPipeline pipeline) {
+        pipeline.addLast(Http2FrameCodecBuilder.forServer().build(), newMultiplexHandler());
+    }
+
+    /**
+     * 组装明文管道：同时接受HTTP/1.1、h2c升级和HTTP/2连接前言
+     * @param pipeline 管道
+     */
+    private void configureCleartext(ChannelPipeline pipeline) {
+        HttpServerCodec sourceCodec = new HttpServerCodec();
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol ->
+                AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                        ? new Http2ServerUpgradeCodec(Http2FrameCodecBuilder.forServer().build(),
+                                newMultiplexHandler(), new Http1Remover())
+                        : null,
+                maxContentLength);
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, new PriorKnowledgeHandler()));
+        configureHttp1(pipeline);
+    }
+
+    /**
+     * 创建多路复用处理器，每个流的子通道把帧转换为HTTP/1.1对象后交给请求处理器链
+     * @return 多路复用处理器
+     */
+    private Http2MultiplexHandler newMultiplexHandler() {
+        return new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+            @Override
+            protected void initChannel(Http2StreamChannel ch) {
+                ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                configureHttp1(ch.pipeline());
+            }
+        });
+    }
+
+    /**
+     * 连接切换到HTTP/2后移除父通道上不再使用的HTTP/1.1处理器
+     * @param pipeline 父通道管道
+     */
+    private static void removeHttp1Handlers(ChannelPipeline pipeline) {
+        for (String name : new String[] {IN_FLIGHT, STREAMING_HANDLER, AGGREGATOR, REQUEST_HANDLER}) {
+            if (pipeline.get(name) != null) {
+                pipeline.remove(name);
+            }
+        }
+    }
+
+    /**
+     * h2c升级完成后清理HTTP/1.1处理器
+     */
+    private static final class Http1Remover extends ChannelHandlerAdapter {
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            removeHttp1Handlers(ctx.pipeline());
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    /**
+     * 客户端直接发送HTTP/2连接前言时，替换为HTTP/2处理器
+     */
+    private final class PriorKnowledgeHandler extends ChannelHandlerAdapter {
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            ChannelPipeline pipeline = ctx.pipeline();
+            // 多路复用处理器添加时要求帧编解码器已在管道中
+            ChannelHandler frameCodec = Http2FrameCodecBuilder.forServer().build();
+            pipeline.addAfter(ctx.name(), null, frameCodec);
+            pipeline.addAfter(pipeline.context(frameCodec).name(), null, newMultiplexHandler());
+            removeHttp1Handlers(pipeline);
+            pipeline.remove(this);
+        }
+    }
+}
@@ -1,21 +1,46 @@
 package cn.tjh666.httpframework.server;
 
+import cn.tjh666.httpframework.annotation.ExecutionMode;
+import cn.tjh666.httpframework.context.Request;
 import cn.tjh666.httpframework.exception.DefaultExceptionMapper;
 import cn.tjh666.httpframework.exception.ExceptionMapper;
-import cn.tjh666.httpframework.handler.HttpRequestHandler;
+import cn.tjh666.httpframework.handler.ConditionalRequests;
+import cn.tjh666.httpframework.handler.HandlerExecutor;
+import cn.tjh666.httpframework.handler.RequestCoalescer;
+import cn.tjh666.httpframework.handler.RequestDispatcher;
+import cn.tjh666.httpframework.handler.ResponseCache;
 import cn.tjh666.httpframework.json.JsonSerializer;
 import cn.tjh666.httpframework.routing.Router;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.flush.FlushConsolidationHandler;
 // HTTPS/SSL支持相关导入
 import io.netty.handler.ssl.SslContext;           // SSL上下文，用于配置SSL/TLS参数
 import io.netty.handler.ssl.SslContextBuilder;    // SSL上下文构建器，用于创建SSL配置
-import io.netty.handler.ssl.util.SelfSignedCertificate; // 自签名证书工具类，用于开发和测试环境
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.PromiseCombiner;
+
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * HTTP服务器
@@ -33,10 +58,77 @@ public class HttpServer {
     // HTTPS/SSL配置相关字段
     private boolean sslEnabled = false;    // SSL启用标志，默认为false（HTTP模式）
     private SslContext sslContext;         // SSL上下文对象，包含证书、私钥等SSL配置信息
+    private ReloadableSslContext reloadableSslContext;  // 可热加载的SSL上下文，设置后优先使用
+    private boolean http2Enabled = false;  // HTTP/2启用标志：HTTPS通过ALPN协商，明文支持h2c升级和prior knowledge
+    private boolean detectProtocol = false; // HTTPS端口是否同时接受明文连接
+    
+    // 框架生成SSL上下文时的密钥材料与会话恢复配置
+    private Path keyStorePath;
+    private char[] keyStorePassword;
+    private long sessionCacheSize = 0;      // 0表示使用SSL提供者的默认值
+    private Duration sessionTimeout;        // null表示使用SSL提供者的默认值
+    private Duration ticketKeyRotation = Duration.ofHours(1);
+    private boolean sslContextGenerated;
+    private OpenSslSessionTicketKey currentTicketKey;
+    private final TlsStats tlsStats = new TlsStats();
+    
+    // 控制器执行模式配置
+    private ExecutionMode executionMode = ExecutionMode.EVENT_LOOP;
+    private int workerThreads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    private int workerQueueCapacity = 1024;
+    private HandlerExecutor handlerExecutor;
+    
+    // @Cacheable 路由的响应缓存
+    private long responseCacheBytes = 64L * 1024 * 1024;
+    private ResponseCache responseCache;
+
+    // ETag与条件请求（304）
+    private boolean conditionalRequestsEnabled = true;
+    private ConditionalRequests conditionalRequests;
+
+    // @Coalesce 路由的请求合并统计
+    private RequestCoalescer requestCoalescer;
+
+    // 聚合请求的最大请求体长度，流式路由不受此限制
+    private int maxContentLength = 65536;
+    
+    // 表单数据工厂，决定上传文件保存在内存还是磁盘
+    private HttpDataFactory dataFactory = Request.DEFAULT_DATA_FACTORY;
+    
+    // 网络传输与套接字选项
+    private Transport transport = Transport.AUTO;
+    private Transport activeTransport;
+    private boolean tcpNoDelay = true;
+    private int tcpFastOpen = 0;
+    private boolean tcpQuickAck = false;
+    private boolean reusePort = false;
+    private int flushConsolidation = FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+    private WriteBufferWaterMark writeBufferWaterMark = WriteBufferWaterMark.DEFAULT;
+    private final Set<ConnectionStats> connections = ConcurrentHashMap.newKeySet();
     
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
-    private Channel serverChannel;
+    private final List<Channel> serverChannels = new ArrayList<>();
+    
+    // 监听套接字配置：多个acceptor通过SO_REUSEPORT绑定同一端口，由内核分配新连接
+    private int acceptors = 1;
+    private int activeAcceptors;
+    private int backlog = 128;
+    private final List<AcceptorStats> acceptorStats = new CopyOnWriteArrayList<>();
+    
+    // 主端口之外的监听（明文、TLS、Unix域套接字），与主端口共享工作事件循环和路由器
+    private final List<Listener> listeners = new ArrayList<>();
+    private HttpChannelInitializer plainInitializer;
+    private HttpChannelInitializer tlsInitializer;
+    
+    // 连接生命周期：超时与连接数上限（0表示不限制）
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    private Duration headerTimeout = Duration.ofSeconds(30);
+    private Duration requestTimeout = Duration.ZERO;
+    private int maxConnections = 0;
+    private int maxConnectionsPerIp = 0;
+    private ConnectionTimeouts timeouts;
+    private ConnectionLimiter connectionLimiter;
 
     /**
      * 构造HTTP服务器
@@ -44,8 +136,8 @@ public class HttpServer {
      */
     public HttpServer(int port) {
         this.port = port;
-        this.router = new Router();
         this.jsonSerializer = new JsonSerializer();
+        this.router = new Router(jsonSerializer);
         this.exceptionMapper = new DefaultExceptionMapper();
     }
 
@@ -59,6 +151,36 @@ public class HttpServer {
         return this;
     }
 
+    /**
+     * 注销控制器类，服务器运行期间也可调用
+     * 正在处理的请求不受影响，之后的请求不再匹配该控制器的路由，其缓存的响应一并移除
+     * @param controllerClass 控制器类
+     * @return 存在该控制器的路由时返回true
+     */
+    public boolean unregister(Class<?> controllerClass) {
+        boolean removed = router.unregister(controllerClass);
+        if (responseCache != null) {
+            responseCache.invalidate(controllerClass);
+        }
+        return removed;
+    }
+
+    /**
+     * 替换控制器，服务器运行期间也可调用
+     * 新控制器在切换前完成实例化和调用器编译，切换是原子的，请求要么匹配旧路由要么匹配新路由；
+     * 旧控制器缓存的响应一并移除，新路由的请求不会取到旧控制器产生的响应
+     * @param oldClass 要替换的控制器类
+     * @param newClass 新的控制器类
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer replace(Class<?> oldClass, Class<?> newClass) {
+        router.replace(oldClass, newClass);
+        if (responseCache != null) {
+            responseCache.invalidate(oldClass);
+        }
+        return this;
+    }
+
     /**
      * 设置自定义异常处理器
      * @param exceptionMapper 异常处理器
@@ -69,6 +191,298 @@ public class HttpServer {
         return this;
     }
 
+    /**
+     * 设置控制器方法的默认执行模式
+     * 未通过 {@code @Execution} 注解指定执行模式的路由使用此模式，默认为事件循环线程
+     * 
+     * @param executionMode 执行模式
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer executionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * 配置工作线程池
+     * 用于 {@link ExecutionMode#WORKER} 模式，以及虚拟线程不可用时的回退
+     * 等待队列已满时新请求将返回503
+     * 
+     * @param threads 工作线程数
+     * @param queueCapacity 等待队列容量
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer workerPool(int threads, int queueCapacity) {
+        this.workerThreads = threads;
+        this.workerQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * 设置最大请求体长度
+     * 超过此长度的聚合请求返回413；{@code @Streaming} 路由的请求体不经过聚合，不受此限制
+     * 
+     * @param maxContentLength 最大请求体字节数，默认64KB
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer maxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+        return this;
+    }
+
+    /**
+     * 设置响应缓存的容量
+     * {@link cn.tjh666.httpframework.annotation.Cacheable} 路由的响应体保存在堆外内存中，
+     * 总字节数超过容量时淘汰最久未访问的响应
+     * 
+     * @param maxBytes 缓存响应体的总字节数上限，默认64MB
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer responseCache(long maxBytes) {
+        this.responseCacheBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * 设置是否处理条件请求
+     * 开启时GET请求的200响应自动带上ETag（处理器未设置时根据响应体计算），
+     * 请求的 If-None-Match 或 If-Modified-Since 满足时返回不含响应体的304
+     * 
+     * @param enabled 是否开启，默认开启
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer conditionalRequests(boolean enabled) {
+        this.conditionalRequestsEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * 配置表单上传
+     * 超过内存阈值的表单字段和上传文件写入临时目录，移动到同一文件系统内的目标位置只需重命名
+     * 
+     * @param memoryThreshold 内存阈值（字节），默认16KB
+     * @param tempDir 临时文件目录，为null时使用系统临时目录
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer formUpload(long memoryThreshold, Path tempDir) {
+        DefaultHttpDataFactory factory = Request.newDataFactory(memoryThreshold);
+        if (tempDir != null) {
+            factory.setBaseDir(tempDir.toString());
+        }
+        this.dataFactory = factory;
+        return this;
+    }
+
+    /**
+     * 设置网络传输实现
+     * 默认 {@link Transport#AUTO}：Linux上使用epoll原生传输，其他平台使用NIO；
+     * 指定的传输不可用时自动回退，启动时输出实际使用的传输
+     * 
+     * @param transport 传输实现
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer transport(Transport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * 设置 TCP_NODELAY，默认开启（禁用Nagle算法，降低小响应的延迟）
+     * @param enabled 是否开启
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer tcpNoDelay(boolean enabled) {
+        this.tcpNoDelay = enabled;
+        return this;
+    }
+
+    /**
+     * 设置刷新合并
+     * 同一次读取中解析出的多个请求（管道化请求、keep-alive突发）的响应合并为一次刷新，
+     * 读取结束时统一写入套接字，减少write系统调用；异步完成的响应也会在事件循环的下一轮合并刷新
+     * 
+     * @param explicitFlushAfterFlushes 累计多少次刷新后强制写入套接字，默认256，0表示关闭合并
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer flushConsolidation(int explicitFlushAfterFlushes) {
+        if (explicitFlushAfterFlushes < 0) {
+            throw new IllegalArgumentException("explicitFlushAfterFlushes must not be negative: " + explicitFlushAfterFlushes);
+        }
+        this.flushConsolidation = explicitFlushAfterFlushes;
+        return this;
+    }
+
+    /**
+     * 设置连接的写缓冲区水位
+     * 待发送数据超过高水位时连接变为不可写：暂停读取该连接的请求，{@link cn.tjh666.httpframework.context.ResponseStream}
+     * 的写操作等待数据写出；低于低水位后恢复。慢速客户端占用的服务器内存因此被限制在高水位附近
+     * 
+     * @param low 低水位（字节），默认32KB
+     * @param high 高水位（字节），默认64KB
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer writeBufferWaterMark(int low, int high) {
+        this.writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+        return this;
+    }
+
+    /**
+     * 启用 TCP_FASTOPEN，允许客户端在SYN中携带请求数据（仅原生传输支持）
+     * @param queueLength 等待完成握手的TFO连接队列长度，0表示关闭
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer tcpFastOpen(int queueLength) {
+        this.tcpFastOpen = queueLength;
+        return this;
+    }
+
+    /**
+     * 设置 TCP_QUICKACK，立即发送ACK而不是延迟确认（仅Linux支持）
+     * @param enabled 是否开启
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer tcpQuickAck(boolean enabled) {
+        this.tcpQuickAck = enabled;
+        return this;
+    }
+
+    /**
+     * 设置监听套接字的 SO_REUSEPORT，允许多个进程绑定同一端口
+     * @param enabled 是否开启
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer reusePort(boolean enabled) {
+        this.reusePort = enabled;
+        return this;
+    }
+
+    /**
+     * 设置监听套接字数量
+     * 大于1时以 SO_REUSEPORT 在同一端口绑定多个监听套接字，每个使用独立的事件循环接受连接，
+     * 由内核在它们之间分配新连接，避免单个accept循环成为瓶颈。当前传输不支持 SO_REUSEPORT 时回退为1个
+     * 
+     * @param acceptors 监听套接字数量，默认1
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer acceptors(int acceptors) {
+        if (acceptors < 1) {
+            throw new IllegalArgumentException("acceptors must be at least 1: " + acceptors);
+        }
+        this.acceptors = acceptors;
+        return this;
+    }
+
+    /**
+     * 设置监听套接字的连接等待队列长度（SO_BACKLOG）
+     * 实际上限还受内核参数 net.core.somaxconn 限制
+     * 
+     * @param backlog 队列长度，默认128
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer backlog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * 增加一个明文HTTP监听端口
+     * 与主端口共享工作事件循环、路由器和连接统计，例如主端口使用HTTPS时同时在内网端口提供明文HTTP
+     * 
+     * @param port 端口
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer listen(int port) {
+        listeners.add(Listener.http(port));
+        return this;
+    }
+
+    /**
+     * 增加一个HTTPS监听端口
+     * 使用 {@link #sslContext(SslContext)} 设置的SSL上下文，未设置时自动生成自签名证书；主端口仍按
+     * {@link #enableSsl()} 的配置使用HTTP或HTTPS
+     * 
+     * @param port 端口
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer listenSsl(int port) {
+        listeners.add(Listener.https(port));
+        return this;
+    }
+
+    /**
+     * 增加一个Unix域套接字监听，连接使用明文HTTP
+     * 同一主机上的反向代理或边车通过域套接字转发时不经过TCP协议栈。epoll传输使用原生域套接字，
+     * NIO传输使用JDK的域套接字支持，io_uring传输不支持。服务器关闭时删除套接字文件；
+     * 路径上已存在文件时绑定失败
+     * 
+     * @param path 套接字文件路径
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer listenDomainSocket(Path path) {
+        listeners.add(Listener.domainSocket(path));
+        return this;
+    }
+
+    /**
+     * 设置空闲超时
+     * 连接上没有正在处理的请求且在此期间没有任何读写时关闭，回收空闲的keep-alive连接
+     * 
+     * @param timeout 超时时间，默认60秒，{@link Duration#ZERO} 表示不限制
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer idleTimeout(Duration timeout) {
+        this.idleTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * 设置请求头超时
+     * 从收到请求的第一个字节（HTTPS包括TLS握手）到请求头接收完整的期限，超时返回408并关闭连接
+     * 
+     * @param timeout 超时时间，默认30秒，{@link Duration#ZERO} 表示不限制
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer headerTimeout(Duration timeout) {
+        this.headerTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * 设置请求超时
+     * 从请求头接收完整到响应写完的期限。超时时尚未开始响应则返回503，然后关闭连接（HTTP/2 重置该流）
+     * 
+     * @param timeout 超时时间，默认不限制（{@link Duration#ZERO}）
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer requestTimeout(Duration timeout) {
+        this.requestTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * 设置最大连接数
+     * 超过上限的连接在接受时直接关闭，不分配管道和缓冲区
+     * 
+     * @param maxConnections 全局最大连接数，默认0（不限制）
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer maxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * 设置单个客户端IP的最大连接数
+     * 超过上限的连接在接受时直接关闭
+     * 
+     * @param maxConnectionsPerIp 单IP最大连接数，默认0（不限制）
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer maxConnectionsPerIp(int maxConnectionsPerIp) {
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        return this;
+    }
+
     /**
      * 启用HTTPS支持
      * 调用此方法后，服务器将使用HTTPS协议而非HTTP协议
@@ -100,65 +514,119 @@ public class HttpServer {
         return this;
     }
 
+    /**
+     * 设置保存TLS密钥材料的密钥库（PKCS#12）
+     * 未设置自定义SSL上下文时，从密钥库加载私钥和证书；密钥库不存在时生成自签名证书并写入，
+     * 之后的启动直接加载，省去每次启动时的密钥生成。生产环境可以提供包含正式证书的密钥库
+     * 
+     * @param path 密钥库路径
+     * @param password 密钥库和私钥的密码
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer keyStore(Path path, String password) {
+        this.keyStorePath = path;
+        this.keyStorePassword = password.toCharArray();
+        return this;
+    }
+
+    /**
+     * 设置TLS会话缓存
+     * 客户端重连时恢复缓存中的会话，只需简化握手。仅对框架生成的SSL上下文生效
+     * 
+     * @param size 缓存的会话数，0表示使用SSL提供者的默认值
+     * @param timeout 会话有效期，null表示使用SSL提供者的默认值
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer sslSessionCache(long size, Duration timeout) {
+        this.sessionCacheSize = size;
+        this.sessionTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * 设置会话票据密钥的轮换周期
+     * 会话票据使服务器无需保存会话状态即可恢复会话。使用OpenSSL提供者时由框架生成随机密钥并按周期轮换，
+     * 上一个密钥保留一个周期用于解密已发出的票据；JDK提供者（TLS 1.3）自行生成和轮换票据密钥。
+     * 仅对框架生成的SSL上下文生效
+     * 
+     * @param period 轮换周期，默认1小时，{@link Duration#ZERO} 表示不轮换
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer ticketKeyRotation(Duration period) {
+        this.ticketKeyRotation = period;
+        return this;
+    }
+
+    /**
+     * 设置HTTPS端口是否同时接受明文连接
+     * 开启后HTTPS端口（主端口和 {@link #listenSsl(int)} 增加的端口）根据连接的首个字节判断是否为TLS，
+     * 明文连接按明文端口处理（启用HTTP/2时包括h2c）。内网流量可以在外部客户端使用的同一端口上省去TLS开销，
+     * 无需再绑定一个明文端口。对外暴露的端口开启前应确认明文访问是可以接受的
+     * 
+     * @param enabled 是否开启，默认关闭
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer detectProtocol(boolean enabled) {
+        this.detectProtocol = enabled;
+        return this;
+    }
+
+    /**
+     * 设置可热加载的SSL上下文
+     * 每个新连接使用当前的SSL上下文，证书更新后调用 {@link ReloadableSslContext#reload()} 或通过
+     * {@link ReloadableSslContext#watch(Duration)} 监视证书文件即可替换，无需重启服务器，已建立的连接不受影响。
+     * 调用此方法会自动启用SSL支持
+     * 
+     * 使用示例：
+     * ReloadableSslContext ssl = ReloadableSslContext.fromFiles(certFile, keyFile).watch(Duration.ofSeconds(30));
+     * server.sslContext(ssl);
+     * 
+     * @param sslContext 可热加载的SSL上下文
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer sslContext(ReloadableSslContext sslContext) {
+        this.reloadableSslContext = sslContext;
+        this.sslEnabled = true;
+        return this;
+    }
+
+    /**
+     * 启用HTTP/2支持
+     * HTTPS连接通过ALPN协商 h2 或 http/1.1；明文连接支持 Upgrade: h2c 升级和直接发送HTTP/2连接前言，
+     * 同时仍接受普通HTTP/1.1请求。每个HTTP/2流经同一个路由器分发，控制器无需修改
+     * 
+     * 使用自定义SSL上下文时，需要在构建时配置ALPN：
+     * SslContextBuilder.forServer(certFile, keyFile)
+     *     .applicationProtocolConfig(HttpChannelInitializer.alpnConfig())
+     *     .build();
+     * 
+     * @return 服务器实例，支持链式调用
+     */
+    public HttpServer enableHttp2() {
+        this.http2Enabled = true;
+        return this;
+    }
+
     /**
      * 启动服务器（同步模式）
      * 根据SSL配置启动HTTP或HTTPS服务器
      * @throws Exception 启动异常
      */
     public void start() throws Exception {
-        // SSL证书自动配置逻辑
-        // 如果启用了SSL但没有设置自定义SSL上下文，则自动生成自签名证书
-        // 这种方式适用于开发和测试环境，生产环境建议使用真实证书
-        if (sslEnabled && sslContext == null) {
-            SelfSignedCertificate ssc = new SelfSignedCertificate();  // 生成自签名证书
-            // 使用自签名证书创建SSL上下文，包含公钥证书和私钥
-            sslContext = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
-        }
-
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
-
         try {
-            ServerBootstrap bootstrap = new ServerBootstrap();
-            bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            ChannelPipeline pipeline = ch.pipeline();
-                            
-                            // HTTPS/SSL处理器配置
-                            // SSL处理器必须放在管道的最前面，用于处理TLS握手和加密/解密
-                            if (sslEnabled && sslContext != null) {
-                                // 为每个连接创建SSL处理器实例，处理SSL/TLS协议
-                                pipeline.addLast(sslContext.newHandler(ch.alloc()));
-                            }
-                            
-                            // 添加HTTP编解码器（处理HTTP协议，位于SSL层之上）
-                            pipeline.addLast(new HttpServerCodec());
-                            
-                            // 添加HTTP对象聚合器，将HTTP消息聚合为FullHttpRequest
-                            pipeline.addLast(new HttpObjectAggregator(65536));
-                            
-                            // 添加自定义请求处理器
-                            pipeline.addLast(new HttpRequestHandler(router, jsonSerializer, exceptionMapper));
-                        }
-                    })
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
-
             // 绑定端口并启动服务器
-            ChannelFuture future = bootstrap.bind(port).sync();
-            serverChannel = future.channel();
+            bind(bootstrap()).sync();
             
             // 根据SSL配置显示协议类型
             String protocol = sslEnabled ? "HTTPS" : "HTTP";
-            System.out.println(protocol + " Server started on port " + port);
+            System.out.println(protocol + " Server started on port " + port + " (" + describeListeners() + ")");
             System.out.println("Registered routes:");
             router.getRoutes().forEach(route -> System.out.println("  " + route));
             
             // 等待服务器关闭
-            serverChannel.closeFuture().sync();
+            for (Channel channel : serverChannels) {
+                channel.closeFuture().sync();
+            }
         } finally {
             shutdown();  // 正确处理资源释放
         }
@@ -172,64 +640,250 @@ public class HttpServer {
      * @throws Exception 启动异常
      */
     public ChannelFuture startAsync() throws Exception {
-        // SSL证书自动配置逻辑（与同步启动相同）
+        // 绑定端口
+        ChannelFuture future = bind(bootstrap());
+        
+        // 根据SSL配置显示协议类型（异步启动时显示"starting"而非"started"）
+        String protocol = sslEnabled ? "HTTPS" : "HTTP";
+        System.out.println(protocol + " Server starting on port " + port + " (" + describeListeners() + ")");
+        System.out.println("Registered routes:");
+        router.getRoutes().forEach(route -> System.out.println("  " + route));
+        
+        return future;
+    }
+
+    /**
+     * 创建服务器启动器
+     * 同步与异步启动共用的初始化逻辑：SSL上下文、控制器执行器、事件循环组和连接管道
+     * @return 已配置的启动器
+     * @throws Exception SSL证书生成失败
+     */
+    private ServerBootstrap bootstrap() throws Exception {
+        // SSL证书自动配置逻辑
         // 如果启用了SSL但没有设置自定义SSL上下文，则自动生成自签名证书
-        if (sslEnabled && sslContext == null) {
-            SelfSignedCertificate ssc = new SelfSignedCertificate();  // 生成自签名证书
-            // 使用自签名证书创建SSL上下文，包含公钥证书和私钥
-            sslContext = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+        // 这种方式适用于开发和测试环境，生产环境建议使用真实证书
+        boolean tlsNeeded = sslEnabled || listeners.stream().anyMatch(Listener::isTls);
+        if (tlsNeeded && sslContext == null && reloadableSslContext == null) {
+            sslContext = buildSslContext();
+            sslContextGenerated = true;
         }
 
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
+        handlerExecutor = new HandlerExecutor(executionMode, workerThreads, workerQueueCapacity);
+        responseCache = new ResponseCache(responseCacheBytes);
+        conditionalRequests = conditionalRequestsEnabled ? new ConditionalRequests() : null;
+        RequestDispatcher dispatcher = new RequestDispatcher(jsonSerializer, exceptionMapper, handlerExecutor, dataFactory,
+                responseCache, conditionalRequests);
+        requestCoalescer = dispatcher.getRequestCoalescer();
+        activeTransport = transport.resolve();
+        if (transport != Transport.AUTO && activeTransport != transport) {
+            System.err.println("[HttpServer] " + transport.displayName() + " transport is not available, falling back to "
+                    + activeTransport.displayName());
+        }
+        activeAcceptors = acceptors;
+        if (acceptors > 1 && activeTransport.reusePortOption() == null) {
+            System.err.println("[HttpServer] SO_REUSEPORT is not supported by the " + activeTransport.displayName()
+                    + " transport, using a single acceptor");
+            activeAcceptors = 1;
+        }
+        if (listeners.stream().anyMatch(Listener::isDomainSocket) && activeTransport.serverDomainSocketChannelClass() == null) {
+            throw new IllegalStateException("Unix domain sockets are not supported by the "
+                    + activeTransport.displayName() + " transport");
+        }
+        timeouts = new ConnectionTimeouts(idleTimeout, headerTimeout, requestTimeout);
+        connectionLimiter = new ConnectionLimiter(maxConnections, maxConnectionsPerIp);
+        // 所有监听共享同一个分发器和连接统计，只有是否安装SSL处理器不同
+        plainInitializer = new HttpChannelInitializer(router, dispatcher, null, null, false,
+                http2Enabled, maxContentLength, flushConsolidation, connections, timeouts);
+        SslContext fixedSslContext = sslContext;
+        Supplier<SslContext> sslContexts = reloadableSslContext != null ? reloadableSslContext : () -> fixedSslContext;
+        tlsInitializer = tlsNeeded ? new HttpChannelInitializer(router, dispatcher, sslContexts, tlsStats, detectProtocol,
+                http2Enabled, maxContentLength, flushConsolidation, connections, timeouts) : null;
+        // 每个监听套接字注册到独立的事件循环
+        bossGroup = activeTransport.newEventLoopGroup(activeAcceptors + listeners.size(), new DefaultThreadFactory("http-boss"));
+        workerGroup = activeTransport.newEventLoopGroup(0, new DefaultThreadFactory("http-io"));
+        if (sslContextGenerated) {
+            scheduleTicketKeyRotation();
+        }
 
         ServerBootstrap bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .childHandler(new ChannelInitializer<SocketChannel>() {
+                .channel(activeTransport.serverChannelClass())
+                .option(ChannelOption.SO_BACKLOG, backlog)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
+        
+        // 平台相关的套接字选项，当前传输不支持时忽略并提示
+        if (reusePort || activeAcceptors > 1) {
+            applyOption(bootstrap, activeTransport.reusePortOption(), true, false, "SO_REUSEPORT");
+        }
+        if (tcpFastOpen > 0) {
+            applyOption(bootstrap, activeTransport.tcpFastOpenOption(), tcpFastOpen, false, "TCP_FASTOPEN");
+        }
+        if (tcpQuickAck) {
+            applyOption(bootstrap, activeTransport.tcpQuickAckOption(), true, true, "TCP_QUICKACK");
+        }
+        return bootstrap;
+    }
+
+    /**
+     * 生成SSL上下文
+     * 密钥材料来自密钥库，未配置密钥库时生成仅保存在内存中的自签名证书（适用于开发和测试）。
+     * OpenSSL可用时使用OpenSSL提供者，握手开销更低且支持设置会话票据密钥
+     * @return SSL上下文
+     * @throws Exception 密钥库读写或证书生成失败
+     */
+    private SslContext buildSslContext() throws Exception {
+        TlsMaterial material = keyStorePath != null
+                ? TlsMaterial.loadOrCreate(keyStorePath, keyStorePassword)
+                : TlsMaterial.selfSigned();
+        SslContextBuilder builder = SslContextBuilder.forServer(material.getKey(), material.getChain())
+                .sslProvider(OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK);
+        if (sessionCacheSize > 0) {
+            builder.sessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout != null) {
+            builder.sessionTimeout(sessionTimeout.getSeconds());
+        }
+        if (http2Enabled) {
+            // 启用HTTP/2时通过ALPN协商协议
+            builder.applicationProtocolConfig(HttpChannelInitializer.alpnConfig())
+                    .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 立即设置一次会话票据密钥，之后按周期在工作事件循环上轮换（仅OpenSSL提供者）
+     */
+    private void scheduleTicketKeyRotation() {
+        if (!(sslContext.sessionContext() instanceof OpenSslSessionContext)
+                || ticketKeyRotation == null || ticketKeyRotation.isZero()) {
+            return;
+        }
+        OpenSslSessionContext sessionContext = (OpenSslSessionContext) sslContext.sessionContext();
+        rotateTicketKeys(sessionContext);
+        long period = ticketKeyRotation.toNanos();
+        workerGroup.scheduleAtFixedRate(() -> rotateTicketKeys(sessionContext), period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 生成新的票据密钥用于加密，上一个密钥保留用于解密已发出的票据
+     */
+    private void rotateTicketKeys(OpenSslSessionContext sessionContext) {
+        SecureRandom random = new SecureRandom();
+        byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+        OpenSslSessionTicketKey previous = currentTicketKey;
+        currentTicketKey = new OpenSslSessionTicketKey(name, hmacKey, aesKey);
+        if (previous != null) {
+            sessionContext.setTicketKeys(currentTicketKey, previous);
+        } else {
+            sessionContext.setTicketKeys(currentTicketKey);
+        }
+    }
+
+    /**
+     * 绑定所有监听套接字
+     * 主端口按acceptor数量绑定，之后依次绑定其他监听。每个监听套接字使用独立的接受统计，
+     * 依次注册到boss组的不同事件循环
+     * @param bootstrap 已配置的启动器
+     * @return 全部绑定完成后完成的Future
+     */
+    private ChannelFuture bind(ServerBootstrap bootstrap) {
+        Listener primary = sslEnabled ? Listener.https(port) : Listener.http(port);
+        PromiseCombiner combiner = new PromiseCombiner(ImmediateEventExecutor.INSTANCE);
+        ChannelFuture first = null;
+        for (int i = 0; i < activeAcceptors + listeners.size(); i++) {
+            ChannelFuture future = bind(bootstrap, i < activeAcceptors ? primary : listeners.get(i - activeAcceptors));
+            combiner.add(future);
+            if (first == null) {
+                first = future;
+            }
+        }
+        if (activeAcceptors + listeners.size() == 1) {
+            return first;
+        }
+        // ImmediateEventExecutor 视任何线程为事件循环，调用方在其上 sync() 会被判定为死锁，这里使用全局执行器
+        ChannelPromise all = new DefaultChannelPromise(first.channel(), GlobalEventExecutor.INSTANCE);
+        combiner.finish(all);
+        return all;
+    }
+
+    /**
+     * 绑定一个监听套接字
+     * TCP监听使用启动器的副本；域套接字不支持TCP选项，使用只包含通用选项的启动器
+     * @param bootstrap 已配置的启动器
+     * @param listener 监听配置
+     * @return 绑定Future
+     */
+    private ChannelFuture bind(ServerBootstrap bootstrap, Listener listener) {
+        AcceptorStats stats = new AcceptorStats(acceptorStats.size());
+        acceptorStats.add(stats);
+        ServerBootstrap listenerBootstrap;
+        if (listener.isDomainSocket()) {
+            listenerBootstrap = new ServerBootstrap()
+                    .group(bossGroup, workerGroup)
+                    .channel(activeTransport.serverDomainSocketChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, backlog)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
+        } else {
+            listenerBootstrap = bootstrap.clone();
+        }
+        ChannelFuture future = listenerBootstrap
+                .childHandler(listener.isTls() ? tlsInitializer : plainInitializer)
+                .handler(new ChannelInitializer<Channel>() {
                     @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ChannelPipeline pipeline = ch.pipeline();
-                        
-                        // HTTPS/SSL处理器配置（与同步启动相同的管道配置）
-                        // SSL处理器必须放在管道的最前面，用于处理TLS握手和加密/解密
-                        if (sslEnabled && sslContext != null) {
-                            // 为每个连接创建SSL处理器实例，处理SSL/TLS协议
-                            pipeline.addLast(sslContext.newHandler(ch.alloc()));
-                        }
-                        
-                        // 添加HTTP编解码器（处理HTTP协议，位于SSL层之上）
-                        pipeline.addLast(new HttpServerCodec());
-                        
-                        // 添加HTTP对象聚合器
-                        pipeline.addLast(new HttpObjectAggregator(65536));
-                        
-                        // 添加自定义请求处理器
-                        pipeline.addLast(new HttpRequestHandler(router, jsonSerializer, exceptionMapper));
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(stats, connectionLimiter);
                     }
-                })
-                .option(ChannelOption.SO_BACKLOG, 128)
-                .childOption(ChannelOption.SO_KEEPALIVE, true);
-
-        // 绑定端口
-        ChannelFuture future = bootstrap.bind(port);
-        serverChannel = future.channel();
-        
-        // 根据SSL配置显示协议类型（异步启动时显示"starting"而非"started"）
-        String protocol = sslEnabled ? "HTTPS" : "HTTP";
-        System.out.println(protocol + " Server starting on port " + port);
-        System.out.println("Registered routes:");
-        router.getRoutes().forEach(route -> System.out.println("  " + route));
-        
+                }).bind(listener.address(activeTransport));
+        serverChannels.add(future.channel());
         return future;
     }
 
     /**
-     * 关闭服务器
+     * 描述监听配置，用于启动日志
+     * @return 传输、监听套接字数量和其他监听
+     */
+    private String describeListeners() {
+        String description = "transport: " + activeTransport.displayName() + ", acceptors: " + activeAcceptors;
+        if (!listeners.isEmpty()) {
+            description += ", listeners: " + listeners;
+        }
+        return description;
+    }
+
+    /**
+     * 设置传输相关的套接字选项
+     * @param bootstrap 启动器
+     * @param option 选项，当前传输不支持时为null
+     * @param value 选项值
+     * @param child 是否为连接套接字选项
+     * @param name 选项名，用于提示
+     */
+    private <T> void applyOption(ServerBootstrap bootstrap, ChannelOption<T> option, T value, boolean child, String name) {
+        if (option == null) {
+            System.err.println("[HttpServer] " + name + " is not supported by the " + activeTransport.displayName()
+                    + " transport, ignored");
+        } else if (child) {
+            bootstrap.childOption(option, value);
+        } else {
+            bootstrap.option(option, value);
+        }
+    }
+
+    /**
+     * 立即关闭服务器，不等待正在处理的请求
+     * 需要排空连接时使用 {@link #shutdownGracefully(Duration)}
      */
     public void shutdown() {
-        if (serverChannel != null) {
-            serverChannel.close();
+        for (Channel channel : serverChannels) {
+            channel.close();
         }
         if (workerGroup != null) {
             workerGroup.shutdownGracefully();
@@ -237,6 +891,148 @@ public class HttpServer {
         if (bossGroup != null) {
             bossGroup.shutdownGracefully();
         }
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdown();
+        }
+        if (responseCache != null) {
+            // 释放缓存占用的堆外内存
+            responseCache.clear();
+        }
+    }
+
+    /**
+     * 优雅停机：排空连接后关闭服务器
+     * 1. 关闭监听套接字，不再接受新连接
+     * 2. 所有连接停止读取新请求；空闲连接立即关闭，处理中的HTTP/1.1连接在最后一个响应上带
+     *    {@code Connection: close} 并在写完后关闭，HTTP/2 连接发送GOAWAY并等待已有的流完成
+     * 3. 等待所有连接关闭，最长等待 {@code timeout}，到期后强制关闭剩余连接
+     * 4. 按 {@link #shutdown()} 关闭事件循环和控制器线程池
+     * 
+     * @param timeout 排空期限
+     * @return 排空结果：正常关闭和强制关闭的连接数
+     */
+    public DrainResult shutdownGracefully(Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        for (Channel channel : serverChannels) {
+            channel.close().awaitUninterruptibly();
+        }
+
+        List<ConnectionStats> draining = getConnectionStats();
+        draining.forEach(ConnectionStats::drain);
+        try {
+            for (ConnectionStats connection : draining) {
+                long remaining = deadline - System.nanoTime();
+                ChannelFuture closeFuture = connection.closeFuture();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (closeFuture != null) {
+                    closeFuture.await(remaining, TimeUnit.NANOSECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int forced = 0;
+        int abandoned = 0;
+        for (ConnectionStats connection : draining) {
+            if (connection.isOpen()) {
+                forced++;
+                abandoned += connection.getInFlight();
+                connection.forceClose();
+            }
+        }
+        DrainResult result = new DrainResult(draining.size(), draining.size() - forced, forced, abandoned,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        System.out.println("[HttpServer] Shutdown: " + result);
+        shutdown();
+        return result;
+    }
+
+    /**
+     * 获取实际使用的传输实现
+     * @return 传输实现，服务器启动前返回null
+     */
+    public Transport getTransport() {
+        return activeTransport;
+    }
+
+    /**
+     * 获取各监听套接字的连接接受统计
+     * @return 统计列表，按监听套接字序号排列
+     */
+    public List<AcceptorStats> getAcceptorStats() {
+        return Collections.unmodifiableList(acceptorStats);
+    }
+
+    /**
+     * 获取当前活动连接的统计（写出字节数、待发送字节数、暂停读取次数）
+     * @return 统计快照
+     */
+    public List<ConnectionStats> getConnectionStats() {
+        return new ArrayList<>(connections);
+    }
+
+    /**
+     * 获取TLS握手统计（握手数、会话恢复比例、握手耗时）
+     * @return 握手统计
+     */
+    public TlsStats getTlsStats() {
+        return tlsStats;
+    }
+
+    /**
+     * 获取响应缓存（命中、未命中、淘汰次数和占用字节数），可用于在数据更新后清空缓存
+     * @return 响应缓存，服务器启动前返回null
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * 获取条件请求统计（304次数、因版本匹配跳过调用的次数）
+     * @return 条件请求处理，服务器启动前或未开启时返回null
+     */
+    public ConditionalRequests getConditionalRequests() {
+        return conditionalRequests;
+    }
+
+    /**
+     * 获取请求合并统计（实际调用次数、合并的请求数、回退与超时次数、进行中的调用数）
+     * @return 请求合并，服务器启动前返回null
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * 获取超时计数（空闲关闭、请求头超时、请求超时）
+     * @return 超时配置与计数，服务器启动前返回null
+     */
+    public ConnectionTimeouts getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * 获取连接数限制及计数（当前连接数、峰值、被拒绝的连接数）
+     * @return 连接数限制，服务器启动前返回null
+     */
+    public ConnectionLimiter getConnectionLimiter() {
+        return connectionLimiter;
+    }
+
+    /**
+     * 获取所有连接上正在处理的请求总数
+     * @return 已收到请求头、响应尚未写完的请求数
+     */
+    public int getInFlightRequests() {
+        int total = 0;
+        for (ConnectionStats connection : connections) {
+            total += connection.getInFlight();
+        }
+        return total;
     }
 
     /**
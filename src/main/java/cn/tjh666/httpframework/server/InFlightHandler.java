@@ -0,0 +1,190 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 正在处理的请求跟踪与请求超时
+ * 位于HTTP编解码器之后（HTTP/2 为每个流的子通道），读到请求头时计数加一，响应的最后一部分写出后减一，
+ * 计数记录在所属连接的 {@link ConnectionStats} 上。连接排空时，给该连接最后一个请求的响应加上
+ * {@code Connection: close}，告知客户端不再复用此连接
+ *
+ * 同时执行 {@link ConnectionTimeouts} 中的请求头超时和请求超时。编解码器每次读取都会传递 channelReadComplete，
+ * 一次读取没有解析出任何HTTP对象、且不在接收请求体时，说明收到了尚不完整的请求头，从此时开始计算请求头期限
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class InFlightHandler extends ChannelDuplexHandler {
+    private final ConnectionStats connection;
+    private final ConnectionTimeouts timeouts;
+    // 未完成请求的开始时间，HTTP/1.1 响应按请求顺序写出，队首即当前正在响应的请求
+    private final ArrayDeque<Long> pending = new ArrayDeque<>(2);
+    private boolean readMessage;
+    private boolean receivingBody;
+    private boolean responseStarted;
+    private ScheduledFuture<?> headerTimer;
+    private ScheduledFuture<?> requestTimer;
+
+    /**
+     * 构造跟踪处理器
+     * @param connection 所属连接的统计
+     * @param timeouts 超时配置
+     */
+    InFlightHandler(ConnectionStats connection, ConnectionTimeouts timeouts) {
+        this.connection = connection;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readMessage = true;
+        if (msg instanceof HttpRequest) {
+            cancelHeaderTimer();
+            pending.add(System.nanoTime());
+            connection.requestStarted();
+            if (pending.size() == 1) {
+                scheduleRequestTimer(ctx);
+            }
+            receivingBody = !(msg instanceof LastHttpContent);
+        } else if (msg instanceof LastHttpContent) {
+            receivingBody = false;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (!readMessage && !receivingBody && headerTimer == null && timeouts.getHeaderNanos() > 0
+                && !(ctx.channel() instanceof Http2StreamChannel)) {
+            headerTimer = ctx.executor().schedule(() -> headerTimedOut(ctx), timeouts.getHeaderNanos(), TimeUnit.NANOSECONDS);
+        }
+        readMessage = false;
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) msg;
+            if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                // 100 Continue 等中间响应不结束请求
+                super.write(ctx, msg, promise);
+                return;
+            }
+            responseStarted = true;
+            if (connection.isDraining() && connection.getInFlight() == 1 && !(ctx.channel() instanceof Http2StreamChannel)) {
+                HttpUtil.setKeepAlive(response, false);
+            }
+        }
+        if (msg instanceof LastHttpContent) {
+            promise = promise.unvoid();
+            promise.addListener(future -> complete(ctx));
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接或流关闭时仍未响应的请求不再计入
+        cancelTimers();
+        while (!pending.isEmpty()) {
+            complete(ctx);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        // 升级到HTTP/2时从父通道移除
+        cancelTimers();
+    }
+
+    private void complete(ChannelHandlerContext ctx) {
+        if (pending.poll() == null) {
+            return;
+        }
+        responseStarted = false;
+        if (requestTimer != null) {
+            requestTimer.cancel(false);
+            requestTimer = null;
+        }
+        connection.requestCompleted();
+        if (!pending.isEmpty() && ctx.channel().isActive()) {
+            scheduleRequestTimer(ctx);
+        }
+    }
+
+    /**
+     * 为队首的请求设置请求期限
+     */
+    private void scheduleRequestTimer(ChannelHandlerContext ctx) {
+        if (timeouts.getRequestNanos() <= 0) {
+            return;
+        }
+        long remaining = pending.peek() + timeouts.getRequestNanos() - System.nanoTime();
+        requestTimer = ctx.executor().schedule(() -> requestTimedOut(ctx), Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private void requestTimedOut(ChannelHandlerContext ctx) {
+        requestTimer = null;
+        timeouts.requestTimedOut();
+        if (responseStarted) {
+            // 响应头已经发出，无法再返回错误状态
+            ctx.close();
+        } else {
+            sendAndClose(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private void headerTimedOut(ChannelHandlerContext ctx) {
+        headerTimer = null;
+        timeouts.headerTimedOut();
+        if (pending.isEmpty()) {
+            sendAndClose(ctx, HttpResponseStatus.REQUEST_TIMEOUT);
+        } else {
+            // 前面的管道化请求尚未响应，不能插入错误响应
+            ctx.close();
+        }
+    }
+
+    private static void sendAndClose(ChannelHandlerContext ctx, HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        HttpUtil.setKeepAlive(response, false);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private void cancelHeaderTimer() {
+        if (headerTimer != null) {
+            headerTimer.cancel(false);
+            headerTimer = null;
+        }
+    }
+
+    private void cancelTimers() {
+        cancelHeaderTimer();
+        if (requestTimer != null) {
+            requestTimer.cancel(false);
+            requestTimer = null;
+        }
+    }
+}
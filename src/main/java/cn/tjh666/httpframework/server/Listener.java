@@ -0,0 +1,77 @@
+package cn.tjh666.httpframework.server;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+
+/**
+ * 监听配置
+ * 服务器可以同时监听多个地址：明文TCP端口、TLS端口和Unix域套接字。
+ * 所有监听共享同一组工作事件循环、路由器、连接统计和超时配置，只有连接管道是否包含SSL处理器不同
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class Listener {
+    private final boolean tls;
+    private final int port;
+    private final Path path;
+
+    private Listener(boolean tls, int port, Path path) {
+        this.tls = tls;
+        this.port = port;
+        this.path = path;
+    }
+
+    /**
+     * 明文HTTP端口
+     * @param port 端口
+     * @return 监听配置
+     */
+    static Listener http(int port) {
+        return new Listener(false, port, null);
+    }
+
+    /**
+     * HTTPS端口
+     * @param port 端口
+     * @return 监听配置
+     */
+    static Listener https(int port) {
+        return new Listener(true, port, null);
+    }
+
+    /**
+     * Unix域套接字，连接使用明文HTTP，适合同一主机上的代理和边车转发
+     * @param path 套接字文件路径
+     * @return 监听配置
+     */
+    static Listener domainSocket(Path path) {
+        return new Listener(false, 0, path);
+    }
+
+    boolean isTls() {
+        return tls;
+    }
+
+    boolean isDomainSocket() {
+        return path != null;
+    }
+
+    /**
+     * 获取绑定地址
+     * @param transport 实际使用的传输，决定域套接字地址的类型
+     * @return 套接字地址
+     */
+    SocketAddress address(Transport transport) {
+        return path != null ? transport.domainSocketAddress(path) : new InetSocketAddress(port);
+    }
+
+    @Override
+    public String toString() {
+        if (path != null) {
+            return "unix:" + path;
+        }
+        return (tls ? "https:" : "http:") + port;
+    }
+}
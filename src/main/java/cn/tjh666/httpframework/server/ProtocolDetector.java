@@ -0,0 +1,43 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.ssl.SslHandler;
+
+import java.util.List;
+
+/**
+ * 单端口协议探测
+ * 安装在HTTPS端口的连接管道上，读到TLS记录头（5字节）后判断连接是否为TLS：
+ * 是则安装SSL处理器，否则按明文处理。明文连接的HTTP/1.1请求和HTTP/2连接前言（prior knowledge）
+ * 由后续的明文管道区分，与明文端口的处理方式相同
+ *
+ * 探测完成后从管道中移除自身，已读取的字节交给新安装的处理器，之后的读取没有额外开销
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class ProtocolDetector extends ByteToMessageDecoder {
+    private static final int TLS_RECORD_HEADER_LENGTH = 5;
+
+    private final HttpChannelInitializer initializer;
+
+    /**
+     * 构造协议探测器
+     * @param initializer 连接管道初始化器，用于组装探测出的协议对应的处理器
+     */
+    ProtocolDetector(HttpChannelInitializer initializer) {
+        this.initializer = initializer;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        if (in.readableBytes() < TLS_RECORD_HEADER_LENGTH) {
+            return;
+        }
+        // 不识别SSLv2格式的ClientHello，其首字节与明文请求无法可靠区分
+        initializer.configureProtocol(ctx.pipeline(), SslHandler.isEncrypted(in, false));
+        ctx.pipeline().remove(this);
+    }
+}
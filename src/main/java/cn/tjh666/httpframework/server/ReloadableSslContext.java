@@ -0,0 +1,187 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 可热加载的SSL上下文
+ * 持有当前使用的 {@link SslContext}，新连接建立时读取一次；重新加载成功后整体替换，之后的新连接使用新证书，
+ * 已建立的连接继续使用原来的上下文直到关闭。加载失败时保留原来的上下文并记录错误，服务不中断
+ *
+ * 可以显式调用 {@link #reload()}，也可以通过 {@link #watch(Duration)} 定期检查证书和私钥文件的修改时间，
+ * 变化后自动重新加载。加载在独立的守护线程上执行，不占用事件循环
+ *
+ * 新的上下文有独立的会话缓存，替换前建立的会话无法在新上下文上恢复
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class ReloadableSslContext implements Supplier<SslContext>, AutoCloseable {
+    private final Callable<SslContext> loader;
+    private final List<Path> watchedFiles;
+    private volatile SslContext current;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastReloadMillis;
+    private volatile Exception lastError;
+    private ScheduledExecutorService watcher;
+    private long lastStamp;
+
+    /**
+     * 构造可热加载的SSL上下文，立即加载一次
+     * @param loader 创建SSL上下文，每次重新加载时调用（例如需要ALPN时在其中配置）
+     * @param watchedFiles 监视的文件，通常为证书和私钥
+     * @throws Exception 首次加载失败
+     */
+    public ReloadableSslContext(Callable<SslContext> loader, Path... watchedFiles) throws Exception {
+        this.loader = loader;
+        this.watchedFiles = Arrays.asList(watchedFiles);
+        this.current = loader.call();
+        this.lastStamp = stamp();
+    }
+
+    /**
+     * 从PEM格式的证书链和私钥文件创建，并监视这两个文件
+     * @param certChain 证书链文件
+     * @param key 私钥文件（PKCS#8）
+     * @return 可热加载的SSL上下文
+     * @throws Exception 首次加载失败
+     */
+    public static ReloadableSslContext fromFiles(Path certChain, Path key) throws Exception {
+        return new ReloadableSslContext(() -> SslContextBuilder.forServer(certChain.toFile(), key.toFile()).build(),
+                certChain, key);
+    }
+
+    /**
+     * 获取当前的SSL上下文
+     * @return SSL上下文
+     */
+    @Override
+    public SslContext get() {
+        return current;
+    }
+
+    /**
+     * 重新加载并替换SSL上下文
+     * @return 成功返回true；失败时保留原来的上下文，错误通过 {@link #getLastError()} 获取
+     */
+    public synchronized boolean reload() {
+        long start = System.nanoTime();
+        try {
+            SslContext loaded = loader.call();
+            current = loaded;
+            lastError = null;
+            reloads.increment();
+            lastReloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("[ReloadableSslContext] Reloaded in " + lastReloadMillis + "ms");
+            return true;
+        } catch (Exception e) {
+            lastError = e;
+            failures.increment();
+            System.err.println("[ReloadableSslContext] Reload failed, keeping the current context: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * 定期检查监视文件的修改时间和大小，有变化时重新加载
+     * 证书和私钥分两次写入时，第一次检查可能读到不匹配的一对而加载失败，第二个文件写入后会再次触发加载
+     * @param interval 检查间隔
+     * @return 当前实例
+     */
+    public synchronized ReloadableSslContext watch(Duration interval) {
+        if (watcher == null) {
+            watcher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("ssl-reload", true));
+            long period = interval.toNanos();
+            watcher.scheduleWithFixedDelay(this::checkFiles, period, period, TimeUnit.NANOSECONDS);
+        }
+        return this;
+    }
+
+    private synchronized void checkFiles() {
+        long stamp = stamp();
+        if (stamp != lastStamp) {
+            lastStamp = stamp;
+            reload();
+        }
+    }
+
+    /**
+     * 由所有监视文件的修改时间和大小计算的指纹，文件不存在时计为0
+     */
+    private long stamp() {
+        long stamp = 0;
+        for (Path file : watchedFiles) {
+            try {
+                stamp = stamp * 31 + Files.getLastModifiedTime(file).toMillis();
+                stamp = stamp * 31 + Files.size(file);
+            } catch (IOException e) {
+                stamp = stamp * 31;
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * 停止监视文件
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * 获取成功重新加载的次数（不含首次加载）
+     * @return 次数
+     */
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * 获取重新加载失败的次数
+     * @return 次数
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * 获取最近一次成功重新加载的耗时
+     * @return 毫秒
+     */
+    public long getLastReloadMillis() {
+        return lastReloadMillis;
+    }
+
+    /**
+     * 获取最近一次重新加载的错误
+     * @return 错误，最近一次加载成功时为null
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "reloads=" + getReloads() + " failures=" + getFailures() + " lastReload=" + getLastReloadMillis() + "ms"
+                + (lastError != null ? " lastError=" + lastError : "");
+    }
+}
@@ -0,0 +1,43 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * 记录一次TLS握手
+ * 位于SSL处理器之前，收到第一个字节（ClientHello）时开始计时并从管道中移除自身，
+ * 握手结果由SSL处理器的握手Future回报给 {@link TlsStats}
+ *
+ * 恢复的会话沿用最初建立时的创建时间，创建时间早于本次握手开始即视为会话恢复
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class TlsHandshakeRecorder extends ChannelInboundHandlerAdapter {
+    private final TlsStats stats;
+    private final SslHandler sslHandler;
+
+    TlsHandshakeRecorder(TlsStats stats, SslHandler sslHandler) {
+        this.stats = stats;
+        this.sslHandler = sslHandler;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        sslHandler.handshakeFuture().addListener(future -> {
+            if (future.isSuccess()) {
+                SSLSession session = sslHandler.engine().getSession();
+                stats.handshakeCompleted(System.nanoTime() - startNanos, session.getCreationTime() < startMillis);
+            } else {
+                stats.handshakeFailed();
+            }
+        });
+        ctx.pipeline().remove(this);
+        ctx.fireChannelRead(msg);
+    }
+}
@@ -0,0 +1,118 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * TLS密钥材料：私钥和证书链
+ * 从PKCS#12密钥库加载；密钥库不存在时生成自签名证书并写入，之后的启动直接加载，
+ * 省去每次启动时的RSA密钥生成，客户端也不会因为证书变化而无法恢复会话
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+final class TlsMaterial {
+    private static final String ALIAS = "server";
+
+    private final PrivateKey key;
+    private final X509Certificate[] chain;
+
+    private TlsMaterial(PrivateKey key, X509Certificate[] chain) {
+        this.key = key;
+        this.chain = chain;
+    }
+
+    /**
+     * 生成仅保存在内存中的自签名证书
+     * @return 密钥材料
+     * @throws GeneralSecurityException 证书生成失败
+     */
+    static TlsMaterial selfSigned() throws GeneralSecurityException {
+        SelfSignedCertificate ssc = new SelfSignedCertificate();
+        try {
+            return new TlsMaterial(ssc.key(), new X509Certificate[] {ssc.cert()});
+        } finally {
+            ssc.delete();
+        }
+    }
+
+    /**
+     * 加载密钥库，不存在时生成自签名证书并保存
+     * @param path 密钥库路径（PKCS#12）
+     * @param password 密钥库和私钥的密码
+     * @return 密钥材料
+     * @throws IOException 读写失败
+     * @throws GeneralSecurityException 密钥库格式错误、密码错误或不包含私钥
+     */
+    static TlsMaterial loadOrCreate(Path path, char[] password) throws IOException, GeneralSecurityException {
+        if (Files.exists(path)) {
+            return load(path, password);
+        }
+        TlsMaterial material = selfSigned();
+        material.store(path, password);
+        return material;
+    }
+
+    private static TlsMaterial load(Path path, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password);
+        }
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Key key = keyStore.getKey(alias, password);
+            if (key instanceof PrivateKey) {
+                Certificate[] certificates = keyStore.getCertificateChain(alias);
+                X509Certificate[] chain = Arrays.copyOf(certificates, certificates.length, X509Certificate[].class);
+                return new TlsMaterial((PrivateKey) key, chain);
+            }
+        }
+        throw new KeyStoreException("No private key entry in " + path);
+    }
+
+    private void store(Path path, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(ALIAS, key, password, chain);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        // 私钥只允许当前用户读取，先写临时文件再移动，避免其他进程读到不完整的密钥库
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // 非POSIX文件系统
+            }
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                keyStore.store(out, password);
+            }
+            Files.move(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    PrivateKey getKey() {
+        return key;
+    }
+
+    X509Certificate[] getChain() {
+        return chain;
+    }
+}
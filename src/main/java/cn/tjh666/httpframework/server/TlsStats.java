@@ -0,0 +1,97 @@
+package cn.tjh666.httpframework.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TLS握手统计
+ * 所有TLS连接共享一个实例，记录完成和失败的握手数、会话恢复（简化握手）与完整握手的比例，
+ * 以及从收到ClientHello到握手完成的耗时。恢复比例偏低通常说明会话缓存过小、超时过短或票据密钥轮换过快
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public class TlsStats {
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void handshakeCompleted(long nanos, boolean resumedSession) {
+        handshakes.increment();
+        if (resumedSession) {
+            resumed.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void handshakeFailed() {
+        failures.increment();
+    }
+
+    /**
+     * 获取成功完成的握手数
+     * @return 握手数
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * 获取恢复已有会话的握手数
+     * @return 握手数
+     */
+    public long getResumed() {
+        return resumed.sum();
+    }
+
+    /**
+     * 获取完整握手数
+     * @return 握手数
+     */
+    public long getFull() {
+        return getHandshakes() - getResumed();
+    }
+
+    /**
+     * 获取失败的握手数（包括握手完成前关闭的连接）
+     * @return 握手数
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * 获取会话恢复比例
+     * @return 恢复的握手占成功握手的比例，没有握手时为0
+     */
+    public double getResumedRatio() {
+        long total = getHandshakes();
+        return total > 0 ? (double) getResumed() / total : 0;
+    }
+
+    /**
+     * 获取平均握手耗时
+     * @return 微秒
+     */
+    public long getAverageMicros() {
+        long total = getHandshakes();
+        return total > 0 ? totalNanos.sum() / total / 1000 : 0;
+    }
+
+    /**
+     * 获取最长握手耗时
+     * @return 微秒
+     */
+    public long getMaxMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "handshakes=" + getHandshakes() + " resumed=" + getResumed() + " failures=" + getFailures()
+                + " avg=" + getAverageMicros() + "us max=" + getMaxMicros() + "us";
+    }
+}
@@ -0,0 +1,259 @@
+package cn.tjh666.httpframework.server;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.socket.nio.NioServerDomainSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 网络传输实现
+ * 决定服务器使用的事件循环和通道类型。Linux上的原生传输（epoll、io_uring）系统调用开销更低，
+ * 并支持 TCP_FASTOPEN、TCP_QUICKACK 等NIO无法设置的套接字选项
+ *
+ * io_uring 依赖 netty-incubator-transport-native-io_uring，通过反射加载，未引入依赖时视为不可用
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+public enum Transport {
+    /**
+     * 自动选择：epoll可用时使用epoll，否则使用NIO
+     */
+    AUTO,
+
+    /**
+     * JDK NIO，所有平台可用
+     */
+    NIO,
+
+    /**
+     * Linux epoll 原生传输
+     */
+    EPOLL,
+
+    /**
+     * Linux io_uring 原生传输（需要内核5.9+和孵化器依赖）
+     */
+    IO_URING;
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    /**
+     * 解析实际使用的传输实现：不可用时依次回退到epoll和NIO
+     * @return 当前环境可用的传输实现
+     */
+    public Transport resolve() {
+        if (this == IO_URING && isAvailable()) {
+            return IO_URING;
+        }
+        if ((this == AUTO || this == EPOLL || this == IO_URING) && EPOLL.isAvailable()) {
+            return EPOLL;
+        }
+        return NIO;
+    }
+
+    /**
+     * 当前环境是否可用
+     * @return 可用返回true；{@link #AUTO} 始终返回true
+     */
+    public boolean isAvailable() {
+        switch (this) {
+            case EPOLL:
+                return Epoll.isAvailable();
+            case IO_URING:
+                try {
+                    return (Boolean) Class.forName(IO_URING_PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    return false;
+                }
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 创建事件循环组
+     * @param threads 线程数，0表示使用Netty默认值（CPU核数*2）
+     * @param threadFactory 线程工厂
+     * @return 事件循环组
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        switch (resolve()) {
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            case IO_URING:
+                try {
+                    return (EventLoopGroup) Class.forName(IO_URING_PACKAGE + "IOUringEventLoopGroup")
+                            .getConstructor(int.class, ThreadFactory.class).newInstance(threads, threadFactory);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Failed to create io_uring event loop group", e);
+                }
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+
+    /**
+     * 获取服务端通道类型
+     * @return 服务端套接字通道类
+     */
+    @SuppressWarnings("unchecked")
+    public Class<? extends ServerChannel> serverChannelClass() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case IO_URING:
+                try {
+                    return (Class<? extends ServerChannel>) Class.forName(IO_URING_PACKAGE + "IOUringServerSocketChannel");
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("io_uring transport is not on the classpath", e);
+                }
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * 获取Unix域套接字的服务端通道类型
+     * epoll使用原生域套接字；NIO使用JDK 16起支持的 {@link UnixDomainSocketAddress}
+     * @return 服务端通道类，当前传输不支持时返回null
+     */
+    public Class<? extends ServerChannel> serverDomainSocketChannelClass() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollServerDomainSocketChannel.class;
+            case IO_URING:
+                return null;
+            default:
+                return NioServerDomainSocketChannel.class;
+        }
+    }
+
+    /**
+     * 创建Unix域套接字地址，类型与 {@link #serverDomainSocketChannelClass()} 对应
+     * @param path 套接字文件路径
+     * @return 套接字地址
+     */
+    public SocketAddress domainSocketAddress(Path path) {
+        if (resolve() == EPOLL) {
+            return new DomainSocketAddress(path.toFile());
+        }
+        return UnixDomainSocketAddress.of(path);
+    }
+
+    /**
+     * SO_REUSEPORT 选项（监听套接字）
+     * @return 选项，不支持时返回null
+     */
+    public ChannelOption<Boolean> reusePortOption() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollChannelOption.SO_REUSEPORT;
+            case IO_URING:
+                return nativeOption("SO_REUSEPORT");
+            default:
+                return nioOption(supported(StandardSocketOptions.SO_REUSEPORT, true));
+        }
+    }
+
+    /**
+     * TCP_FASTOPEN 选项（监听套接字，值为等待队列长度）
+     * @return 选项，不支持时返回null
+     */
+    public ChannelOption<Integer> tcpFastOpenOption() {
+        switch (resolve()) {
+            case EPOLL:
+                return ChannelOption.TCP_FASTOPEN;
+            case IO_URING:
+                return nativeOption("TCP_FASTOPEN");
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * TCP_QUICKACK 选项（连接套接字）
+     * @return 选项，不支持时返回null
+     */
+    public ChannelOption<Boolean> tcpQuickAckOption() {
+        switch (resolve()) {
+            case EPOLL:
+                return EpollChannelOption.TCP_QUICKACK;
+            case IO_URING:
+                return nativeOption("TCP_QUICKACK");
+            default:
+                return nioOption(supported(jdkExtendedOption("TCP_QUICKACK"), false));
+        }
+    }
+
+    /**
+     * 获取传输名称，用于日志输出
+     * @return 小写名称
+     */
+    public String displayName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ChannelOption<T> nativeOption(String name) {
+        try {
+            return (ChannelOption<T>) Class.forName(IO_URING_PACKAGE + "IOUringChannelOption").getField(name).get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static <T> ChannelOption<T> nioOption(SocketOption<T> option) {
+        return option != null ? NioChannelOption.of(option) : null;
+    }
+
+    /**
+     * 获取JDK扩展套接字选项（jdk.net.ExtendedSocketOptions），只在当前平台存在时返回
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> SocketOption<T> jdkExtendedOption(String name) {
+        try {
+            return (SocketOption<T>) Class.forName("jdk.net.ExtendedSocketOptions").getField(name).get(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 检查当前平台的NIO通道是否支持该选项
+     * @param option 套接字选项
+     * @param server 是否为监听套接字
+     * @return 支持时返回选项本身，否则返回null
+     */
+    private static <T> SocketOption<T> supported(SocketOption<T> option, boolean server) {
+        if (option == null) {
+            return null;
+        }
+        try (NetworkChannel channel = server ? ServerSocketChannel.open() : SocketChannel.open()) {
+            return channel.supportedOptions().contains(option) ? option : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Execution;
+import cn.tjh666.httpframework.annotation.ExecutionMode;
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.context.ReadSuspension;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.ResponseStream;
+import cn.tjh666.httpframework.server.ConnectionStats;
+import cn.tjh666.httpframework.server.ConnectionTimeouts;
+import cn.tjh666.httpframework.server.HttpServer;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static cn.tjh666.httpframework.TestSupport.readLine;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 写背压与流式响应测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class BackpressureTest {
+    private static final int CHUNK = 8192;
+    private static final int HIGH_WATER_MARK = 32 * 1024;
+
+    @Test
+    void testSlowReaderBoundsOutboundBuffer() throws Exception {
+        HttpServer server = new HttpServer(18086)
+            .writeBufferWaterMark(16 * 1024, HIGH_WATER_MARK)
+            .register(StreamController.class);
+        int chunks = 2048;  // 16MB，远大于内核套接字缓冲区
+        try {
+            server.startAsync().sync();
+            try (Socket socket = new Socket()) {
+                socket.setReceiveBufferSize(4096);
+                socket.connect(new InetSocketAddress("localhost", 18086));
+                socket.setSoTimeout(10000);
+                socket.getOutputStream().write(("GET /stream/" + chunks + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+
+                // 客户端暂不读取，服务器缓存的响应数据应停在高水位附近而不是整个响应体
+                Thread.sleep(500);
+                List<ConnectionStats> stats = server.getConnectionStats();
+                assertEquals(1, stats.size());
+                ConnectionStats connection = stats.get(0);
+                assertFalse(connection.isWritable());
+                assertTrue(connection.getSuspensions() >= 1);
+                assertTrue(connection.getPendingOutboundBytes() <= HIGH_WATER_MARK + CHUNK + 64,
+                        "pending outbound bytes: " + connection.getPendingOutboundBytes());
+
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                assertEquals((long) chunks * CHUNK, readChunkedBody(in));
+                assertTrue(connection.getBytesWritten() > (long) chunks * CHUNK);
+                assertTrue(connection.isWritable());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testWritabilityKeepsOtherReadSuspensions() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ConnectionStats(null, new ConnectionTimeouts(null, null, null)));
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        ReadSuspension suspension = ReadSuspension.of(channel);
+
+        // 流式请求体的订阅者没有需求时，写背压解除不能恢复读取
+        suspension.suspend(ReadSuspension.Reason.DEMAND);
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        assertFalse(channel.isWritable());
+        channel.flush();
+        assertTrue(channel.isWritable());
+        assertFalse(channel.config().isAutoRead());
+
+        // 订阅者恢复需求时，连接仍不可写则保持暂停
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        suspension.resume(ReadSuspension.Reason.DEMAND);
+        assertFalse(channel.config().isAutoRead());
+        channel.flush();
+        assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * 读取分块编码的响应，校验每个字节并返回响应体长度
+     */
+    private static long readChunkedBody(InputStream in) throws IOException {
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            if (line.startsWith("HTTP/1.1")) {
+                assertEquals("HTTP/1.1 200 OK", line);
+            }
+        }
+        long total = 0;
+        int size;
+        while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+            byte[] data = in.readNBytes(size);
+            for (byte b : data) {
+                assertEquals('x', b);
+            }
+            total += data.length;
+            readLine(in);
+        }
+        readLine(in);
+        return total;
+    }
+
+    public static class StreamController {
+        @Get("/stream/{chunks}")
+        @Execution(ExecutionMode.WORKER)
+        public void stream(@PathParam("chunks") int chunks, Response response) {
+            ResponseStream stream = response.stream(200, "application/octet-stream");
+            byte[] chunk = new byte[CHUNK];
+            Arrays.fill(chunk, (byte) 'x');
+            for (int i = 0; i < chunks; i++) {
+                // 连接不可写时等待数据写出，生产速度跟随客户端的读取速度
+                stream.write(chunk).toCompletableFuture().join();
+            }
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Coalesce;
+import cn.tjh666.httpframework.annotation.Execution;
+import cn.tjh666.httpframework.annotation.ExecutionMode;
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.QueryParam;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.ResponseStream;
+import cn.tjh666.httpframework.handler.RequestCoalescer;
+import cn.tjh666.httpframework.server.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cn.tjh666.httpframework.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求合并测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class CoalesceTest {
+    private static final AtomicInteger INVOCATIONS = new AtomicInteger();
+    private static volatile CountDownLatch gate;
+
+    private HttpServer server;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        INVOCATIONS.set(0);
+        gate = new CountDownLatch(1);
+        server = new HttpServer(18096).register(SlowController.class);
+        server.startAsync().sync();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneInvocation() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = send("/slow/report?day=1", 20);
+        RequestCoalescer coalescer = server.getRequestCoalescer();
+        waitFor(() -> coalescer.getCoalesced() == 19);
+        // 查询参数不同的请求单独执行
+        List<CompletableFuture<HttpResponse<String>>> other = send("/slow/report?day=2", 1);
+        waitFor(() -> coalescer.getLeaders() == 2);
+        gate.countDown();
+
+        String body = responses.get(0).get(5, TimeUnit.SECONDS).body();
+        assertTrue(body.startsWith("report 1 #"), body);
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get(5, TimeUnit.SECONDS).statusCode());
+            assertEquals(body, response.get().body());
+            assertEquals("application/json; charset=UTF-8", response.get().headers().firstValue("Content-Type").orElse(null));
+        }
+        assertTrue(other.get(0).get(5, TimeUnit.SECONDS).body().startsWith("report 2 #"));
+        assertEquals(2, INVOCATIONS.get());
+        assertEquals(0, coalescer.getInFlight());
+
+        // 调用完成后到达的请求重新执行
+        assertNotEquals(body, send("/slow/report?day=1", 1).get(0).get(5, TimeUnit.SECONDS).body());
+        assertEquals(3, INVOCATIONS.get());
+    }
+
+    @Test
+    void testStreamedLeaderReleasesWaiters() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = send("/slow/stream", 3);
+        RequestCoalescer coalescer = server.getRequestCoalescer();
+        waitFor(() -> coalescer.getCoalesced() == 2);
+        gate.countDown();
+
+        // 执行的请求使用了流式响应，等待的请求各自调用
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> result = response.get(5, TimeUnit.SECONDS);
+            assertEquals(200, result.statusCode());
+            assertEquals("streamed", result.body());
+        }
+        assertEquals(2, coalescer.getFallbacks());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void testFailedLeaderReleasesWaiters() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = send("/slow/flaky", 4);
+        RequestCoalescer coalescer = server.getRequestCoalescer();
+        waitFor(() -> coalescer.getCoalesced() == 3);
+        gate.countDown();
+
+        // 第一次调用抛出 Error，只有执行的请求得到500，等待的请求自行调用成功
+        int failed = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> result = response.get(5, TimeUnit.SECONDS);
+            if (result.statusCode() == 500) {
+                failed++;
+            } else {
+                assertEquals(200, result.statusCode());
+                assertTrue(result.body().startsWith("flaky #"), result.body());
+            }
+        }
+        assertEquals(1, failed);
+        assertEquals(3, coalescer.getFallbacks());
+        assertEquals(4, INVOCATIONS.get());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void testStuckLeaderTimesOut() throws Exception {
+        // 第一次调用返回永不完成的结果
+        CompletableFuture<HttpResponse<String>> stuck = send("/slow/stuck", 1).get(0);
+        RequestCoalescer coalescer = server.getRequestCoalescer();
+        waitFor(() -> INVOCATIONS.get() == 1);
+
+        List<CompletableFuture<HttpResponse<String>>> waiting = send("/slow/stuck", 2);
+        for (CompletableFuture<HttpResponse<String>> response : waiting) {
+            HttpResponse<String> result = response.get(5, TimeUnit.SECONDS);
+            assertEquals(200, result.statusCode());
+            assertTrue(result.body().startsWith("stuck #"), result.body());
+        }
+        assertEquals(2, coalescer.getTimeouts());
+        assertFalse(stuck.isDone());
+
+        // 超时后调用移出进行中的表，新的请求重新执行
+        waitFor(() -> coalescer.getInFlight() == 0);
+        assertEquals(200, send("/slow/stuck", 1).get(0).get(5, TimeUnit.SECONDS).statusCode());
+        stuck.cancel(true);
+    }
+
+    private List<CompletableFuture<HttpResponse<String>>> send(String path, int count) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:18096" + path)).build(),
+                HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses;
+    }
+
+    @Execution(ExecutionMode.WORKER)
+    public static class SlowController {
+        @Get("/slow/report")
+        @Coalesce
+        public String report(@QueryParam("day") int day) throws InterruptedException {
+            int invocation = INVOCATIONS.incrementAndGet();
+            gate.await(5, TimeUnit.SECONDS);
+            return "report " + day + " #" + invocation;
+        }
+
+        @Get("/slow/stream")
+        @Coalesce
+        public void stream(Response response) throws Exception {
+            gate.await(5, TimeUnit.SECONDS);
+            ResponseStream stream = response.stream(200, "text/plain; charset=UTF-8");
+            stream.write("streamed".getBytes(StandardCharsets.UTF_8));
+            stream.close();
+        }
+
+        @Get("/slow/flaky")
+        @Coalesce
+        public String flaky() throws InterruptedException {
+            int invocation = INVOCATIONS.incrementAndGet();
+            if (invocation == 1) {
+                gate.await(5, TimeUnit.SECONDS);
+                throw new AssertionError("first invocation fails");
+            }
+            return "flaky #" + invocation;
+        }
+
+        @Get("/slow/stuck")
+        @Coalesce(timeout = 200, unit = TimeUnit.MILLISECONDS)
+        public CompletionStage<String> stuck() {
+            int invocation = INVOCATIONS.incrementAndGet();
+            return invocation == 1 ? new CompletableFuture<>() : CompletableFuture.completedFuture("stuck #" + invocation);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.annotation.Versioned;
+import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.server.HttpServer;
+import io.netty.handler.codec.DateFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ETag与条件请求测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class ConditionalRequestTest {
+    private static final AtomicInteger INVOCATIONS = new AtomicInteger();
+    private static final AtomicLong VERSION = new AtomicLong();
+    private static final long MODIFIED = 1_700_000_000_000L;
+
+    private HttpServer server;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        INVOCATIONS.set(0);
+        VERSION.set(1);
+        server = new HttpServer(18095).register(ConditionalController.class);
+        server.startAsync().sync();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    void testETagFromBodyHash() throws Exception {
+        HttpResponse<String> response = get("/conditional/text", null, null);
+        assertEquals(200, response.statusCode());
+        // XXH64("Nobody inspects the spammish repetition")
+        assertEquals("\"fbcea83c8a378bf1\"", response.headers().firstValue("ETag").orElse(null));
+
+        HttpResponse<String> notModified = get("/conditional/text", "\"fbcea83c8a378bf1\"", null);
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+        assertEquals("\"fbcea83c8a378bf1\"", notModified.headers().firstValue("ETag").orElse(null));
+
+        // 弱比较与标签列表
+        assertEquals(304, get("/conditional/text", "\"other\", W/\"fbcea83c8a378bf1\"", null).statusCode());
+        assertEquals(304, get("/conditional/text", "*", null).statusCode());
+        assertEquals(200, get("/conditional/text", "\"other\"", null).statusCode());
+        assertEquals(5, INVOCATIONS.get());
+    }
+
+    @Test
+    void testHandlerValidators() throws Exception {
+        HttpResponse<String> response = get("/conditional/document", null, null);
+        assertEquals("\"doc-7\"", response.headers().firstValue("ETag").orElse(null));
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        assertEquals(DateFormatter.format(new Date(MODIFIED)), lastModified);
+
+        assertEquals(304, get("/conditional/document", null, lastModified).statusCode());
+        assertEquals(304, get("/conditional/document", null, DateFormatter.format(new Date(MODIFIED + 60000))).statusCode());
+        assertEquals(200, get("/conditional/document", null, DateFormatter.format(new Date(MODIFIED - 60000))).statusCode());
+        // If-None-Match 优先于 If-Modified-Since
+        assertEquals(200, get("/conditional/document", "\"doc-6\"", lastModified).statusCode());
+    }
+
+    @Test
+    void testVersionSkipsInvocation() throws Exception {
+        HttpResponse<String> response = get("/conditional/items/3", null, null);
+        assertEquals("item 3", response.body());
+        assertEquals("\"3-1\"", response.headers().firstValue("ETag").orElse(null));
+        assertEquals(1, INVOCATIONS.get());
+
+        HttpResponse<String> notModified = get("/conditional/items/3", "\"3-1\"", null);
+        assertEquals(304, notModified.statusCode());
+        assertEquals("\"3-1\"", notModified.headers().firstValue("ETag").orElse(null));
+        assertEquals(1, INVOCATIONS.get());
+        assertEquals(1, server.getConditionalRequests().getSkippedInvocations());
+
+        // 版本变化后重新调用
+        VERSION.set(2);
+        HttpResponse<String> changed = get("/conditional/items/3", "\"3-1\"", null);
+        assertEquals(200, changed.statusCode());
+        assertEquals("\"3-2\"", changed.headers().firstValue("ETag").orElse(null));
+        assertEquals(2, INVOCATIONS.get());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        server.shutdown();
+        server = new HttpServer(18095).conditionalRequests(false).register(ConditionalController.class);
+        server.startAsync().sync();
+        HttpResponse<String> response = get("/conditional/text", "*", null);
+        assertEquals(200, response.statusCode());
+        assertFalse(response.headers().firstValue("ETag").isPresent());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch, String ifModifiedSince) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:18095" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            request.header("If-Modified-Since", ifModifiedSince);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    public static class ConditionalController {
+        @Get("/conditional/text")
+        public String text() {
+            INVOCATIONS.incrementAndGet();
+            return "Nobody inspects the spammish repetition";
+        }
+
+        @Get("/conditional/document")
+        public String document(Response response) {
+            response.etag("doc-7").lastModified(MODIFIED);
+            return "document";
+        }
+
+        @Get("/conditional/items/{id}")
+        @Versioned("itemVersion")
+        public String item(@PathParam("id") int id) {
+            INVOCATIONS.incrementAndGet();
+            return "item " + id;
+        }
+
+        public String itemVersion(@PathParam("id") int id) {
+            return id + "-" + VERSION.get();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.server.DrainResult;
+import cn.tjh666.httpframework.server.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static cn.tjh666.httpframework.TestSupport.readLine;
+import static cn.tjh666.httpframework.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 优雅停机测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class GracefulShutdownTest {
+
+    @Test
+    void testDrainWaitsForInFlightRequests() throws Exception {
+        HttpServer server = new HttpServer(18087).register(SlowController.class);
+        server.startAsync().sync();
+        try (Socket idle = new Socket("localhost", 18087); Socket busy = new Socket("localhost", 18087)) {
+            idle.setSoTimeout(5000);
+            busy.setSoTimeout(5000);
+            // 一个空闲的keep-alive连接，一个正在处理请求的连接
+            InputStream idleIn = send(idle, "/slow/0");
+            assertEquals("0", readResponse(idleIn).get("body"));
+            InputStream busyIn = send(busy, "/slow/500");
+            waitFor(() -> server.getInFlightRequests() == 1);
+
+            CompletableFuture<DrainResult> drain = CompletableFuture.supplyAsync(
+                    () -> server.shutdownGracefully(Duration.ofSeconds(5)));
+
+            Map<String, String> response = readResponse(busyIn);
+            assertEquals("500", response.get("body"));
+            assertEquals("close", response.get("connection"));
+            assertEquals(-1, busyIn.read());
+            assertEquals(-1, idleIn.read());
+
+            DrainResult result = drain.get(5, TimeUnit.SECONDS);
+            assertEquals(2, result.getConnections());
+            assertEquals(2, result.getDrained());
+            assertEquals(0, result.getForced());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testDrainDeadlineForcesClose() throws Exception {
+        HttpServer server = new HttpServer(18087).register(SlowController.class);
+        server.startAsync().sync();
+        try (Socket busy = new Socket("localhost", 18087)) {
+            busy.setSoTimeout(5000);
+            InputStream in = send(busy, "/slow/3000");
+            waitFor(() -> server.getInFlightRequests() == 1);
+
+            DrainResult result = server.shutdownGracefully(Duration.ofMillis(200));
+            assertEquals(0, result.getDrained());
+            assertEquals(1, result.getForced());
+            assertEquals(1, result.getAbandonedRequests());
+            assertEquals(-1, in.read());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static InputStream send(Socket socket, String path) throws IOException {
+        socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        return new BufferedInputStream(socket.getInputStream());
+    }
+
+    /**
+     * 读取一个响应，返回小写的响应头和响应体（键为body）
+     */
+    private static Map<String, String> readResponse(InputStream in) throws IOException {
+        Map<String, String> response = new HashMap<>();
+        readLine(in);  // 状态行
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            response.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        int length = Integer.parseInt(response.getOrDefault("content-length", "0"));
+        response.put("body", new String(in.readNBytes(length), StandardCharsets.UTF_8));
+        return response;
+    }
+
+    public static class SlowController {
+        @Get("/slow/{millis}")
+        public CompletionStage<String> slow(@PathParam("millis") int millis) {
+            return CompletableFuture.supplyAsync(() -> String.valueOf(millis),
+                    CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+        }
+    }
+}
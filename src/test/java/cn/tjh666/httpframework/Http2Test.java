@@ -0,0 +1,148 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Body;
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.Post;
+import cn.tjh666.httpframework.server.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static cn.tjh666.httpframework.TestSupport.trustAll;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP/2 集成测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class Http2Test {
+
+    @Test
+    void testCleartextUpgrade() throws Exception {
+        HttpServer server = new HttpServer(18083).enableHttp2().register(Http2Controller.class);
+        try {
+            server.startAsync().sync();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+            // 第一个请求通过 Upgrade: h2c 升级，后续请求复用同一个HTTP/2连接
+            HttpResponse<String> first = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:18083/h2/hello")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, first.statusCode());
+            assertEquals("hello", first.body());
+            assertEquals(HttpClient.Version.HTTP_2, first.version());
+
+            HttpResponse<String> second = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:18083/h2/echo"))
+                    .POST(HttpRequest.BodyPublishers.ofString("ping")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals("ping", second.body());
+            assertEquals(HttpClient.Version.HTTP_2, second.version());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testHttp1StillServed() throws Exception {
+        HttpServer server = new HttpServer(18083).enableHttp2().register(Http2Controller.class);
+        try {
+            server.startAsync().sync();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:18083/h2/hello")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals("hello", response.body());
+            assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testAlpnNegotiation() throws Exception {
+        HttpServer server = new HttpServer(18084).enableSsl().enableHttp2().register(Http2Controller.class);
+        try {
+            server.startAsync().sync();
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(trustAll())
+                .build();
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("https://localhost:18084/h2/hello")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals("hello", response.body());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testProtocolDetectionOnSslPort() throws Exception {
+        HttpServer server = new HttpServer(18084).enableSsl().enableHttp2().detectProtocol(true)
+            .register(Http2Controller.class);
+        try {
+            server.startAsync().sync();
+            URI path = URI.create("/h2/hello");
+
+            // TLS连接通过ALPN协商HTTP/2
+            HttpClient tls = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).sslContext(trustAll()).build();
+            HttpResponse<String> secure = tls.send(HttpRequest.newBuilder(URI.create("https://localhost:18084").resolve(path))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals("hello", secure.body());
+            assertEquals(HttpClient.Version.HTTP_2, secure.version());
+
+            // 同一端口上的明文HTTP/1.1和h2c升级
+            HttpClient plain = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpResponse<String> http1 = plain.send(HttpRequest.newBuilder(URI.create("http://localhost:18084").resolve(path))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals("hello", http1.body());
+            assertEquals(HttpClient.Version.HTTP_1_1, http1.version());
+
+            HttpClient h2c = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+            HttpResponse<String> upgraded = h2c.send(HttpRequest.newBuilder(URI.create("http://localhost:18084").resolve(path))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals("hello", upgraded.body());
+            assertEquals(HttpClient.Version.HTTP_2, upgraded.version());
+
+            // 直接发送HTTP/2连接前言，服务器以SETTINGS帧回应
+            try (Socket socket = new Socket("localhost", 18084)) {
+                socket.setSoTimeout(5000);
+                OutputStream out = socket.getOutputStream();
+                out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.write(new byte[] {0, 0, 0, 0x4, 0, 0, 0, 0, 0});
+                out.flush();
+                byte[] header = socket.getInputStream().readNBytes(9);
+                assertEquals(9, header.length);
+                assertEquals(0x4, header[3]);
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 测试控制器
+     */
+    public static class Http2Controller {
+
+        @Get("/h2/hello")
+        public String hello() {
+            return "hello";
+        }
+
+        @Post("/h2/echo")
+        public String echo(@Body String body) {
+            return body;
+        }
+    }
+}
@@ -1,24 +1,37 @@
 package cn.tjh666.httpframework;
 
+import cn.tjh666.httpframework.annotation.Execution;
+import cn.tjh666.httpframework.annotation.ExecutionMode;
 import cn.tjh666.httpframework.annotation.Get;
 import cn.tjh666.httpframework.annotation.Post;
+import cn.tjh666.httpframework.annotation.Streaming;
 import cn.tjh666.httpframework.context.Request;
 import cn.tjh666.httpframework.context.Response;
+import cn.tjh666.httpframework.context.SpooledBody;
+import cn.tjh666.httpframework.context.StreamingBody;
 import cn.tjh666.httpframework.server.HttpServer;
 import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.multipart.FileUpload;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import static cn.tjh666.httpframework.TestSupport.readLine;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -111,6 +124,80 @@ class HttpServerTest {
         assertEquals("Custom text response", response);
     }
     
+    @Test
+    void testWorkerExecution() throws Exception {
+        String response = sendGetRequest("/test/worker");
+        assertTrue(response.startsWith("http-worker"), response);
+    }
+    
+    @Test
+    void testAsyncResult() throws Exception {
+        String response = sendGetRequest("/test/async");
+        assertTrue(response.contains("\"message\":\"Async done\""));
+    }
+    
+    @Test
+    void testAsyncFailure() throws Exception {
+        try {
+            sendGetRequest("/test/async-error");
+            fail("Should have thrown exception for 400");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("400"));
+        }
+    }
+    
+    @Test
+    void testStreamingBody() throws Exception {
+        // 超过聚合器的64KB限制，流式路由不受影响，超过阈值的部分写入临时文件
+        String large = "x".repeat(200 * 1024);
+        assertEquals("204800:false", sendPostRequest("/test/stream", large));
+        assertEquals("5:true", sendPostRequest("/test/stream", "hello"));
+    }
+    
+    @Test
+    void testStreamingMultipartForm() throws Exception {
+        String body = "--BOUNDARY\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+            + "big\r\n"
+            + "--BOUNDARY\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"big.bin\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n"
+            + "y".repeat(100 * 1024) + "\r\n"
+            + "--BOUNDARY--\r\n";
+        URL url = new URL("http://localhost:" + TEST_PORT + "/test/form");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=BOUNDARY");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes());
+        }
+        
+        assertEquals(200, conn.getResponseCode());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+        assertEquals("big:102400:false", reader.readLine());
+        reader.close();
+    }
+    
+    @Test
+    void testFormFailsWhenReleasedMidUpload() throws Exception {
+        // 控制器订阅表单后同步返回，请求体只发送了一部分
+        try (Socket socket = new Socket("localhost", TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /test/form-sync HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: multipart/form-data; boundary=BOUNDARY\r\nContent-Length: 100000\r\n\r\n"
+                + "--BOUNDARY\r\nContent-Disposition: form-data; name=\"title\"\r\n\r\npartial")
+                .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            assertEquals("HTTP/1.1 200 OK", readLine(socket.getInputStream()));
+            ExecutionException e = assertThrows(ExecutionException.class,
+                () -> TestController.syncForm.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
     /**
      * 发送GET请求
      */
@@ -174,6 +261,8 @@ class HttpServerTest {
      * 测试控制器
      */
     public static class TestController {
+        static volatile CompletableFuture<?> syncForm;
+
         
         @Get("/test/hello")
         public Map<String, Object> hello() {
@@ -221,5 +310,55 @@ class HttpServerTest {
         public void customResponse(Response response) {
             response.text(200, "Custom text response");
         }
+        
+        @Get("/test/async")
+        public CompletionStage<Map<String, Object>> async() {
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("message", "Async done");
+                return result;
+            });
+        }
+        
+        @Get("/test/async-error")
+        public CompletionStage<String> asyncError() {
+            return CompletableFuture.supplyAsync(() -> {
+                throw new IllegalArgumentException("Async failure");
+            });
+        }
+        
+        @Get("/test/worker")
+        @Execution(ExecutionMode.WORKER)
+        public void worker(Response response) {
+            response.text(200, Thread.currentThread().getName());
+        }
+        
+        @Post("/test/stream")
+        @Streaming
+        public CompletionStage<String> stream(StreamingBody body) {
+            return body.spool(1024).thenApply(spooled -> {
+                try (SpooledBody data = spooled) {
+                    return data.size() + ":" + data.isInMemory();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        
+        @Post("/test/form-sync")
+        @Streaming
+        public String formSync(StreamingBody body) {
+            syncForm = body.form().toCompletableFuture();
+            return "accepted";
+        }
+
+        @Post("/test/form")
+        @Streaming
+        public CompletionStage<String> form(StreamingBody body) {
+            return body.form().thenApply(form -> {
+                FileUpload file = form.getFile("file");
+                return form.getParam("title") + ":" + file.length() + ":" + file.isInMemory();
+            });
+        }
     }
-}
\ No newline at end of file
+}
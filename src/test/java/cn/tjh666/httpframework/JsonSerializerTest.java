@@ -1,6 +1,9 @@
 package cn.tjh666.httpframework;
 
 import cn.tjh666.httpframework.json.JsonSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -89,6 +92,41 @@ class JsonSerializerTest {
         assertEquals("bob@example.com", result.getEmail());
     }
     
+    @Test
+    void testSerializeToByteBuf() throws Exception {
+        TestUser user = new TestUser("张三", 28, "zhangsan@example.com");
+        ByteBuf buffer = jsonSerializer.serialize(user, PooledByteBufAllocator.DEFAULT);
+        try {
+            assertEquals(jsonSerializer.serialize(user), buffer.toString(CharsetUtil.UTF_8));
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    @Test
+    void testSerializeStringToByteBuf() throws Exception {
+        ByteBuf buffer = jsonSerializer.serialize("Hello World", PooledByteBufAllocator.DEFAULT);
+        try {
+            assertEquals("Hello World", buffer.toString(CharsetUtil.UTF_8));
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    @Test
+    void testDeserializeFromByteBuf() throws Exception {
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer();
+        buffer.writeCharSequence("{\"name\":\"Bob\",\"age\":35}", CharsetUtil.UTF_8);
+        try {
+            TestUser result = jsonSerializer.deserialize(buffer, TestUser.class);
+            assertEquals("Bob", result.getName());
+            assertEquals(35, result.getAge());
+            assertEquals(0, buffer.readerIndex());
+        } finally {
+            buffer.release();
+        }
+    }
+    
     /**
      * 测试用户类
      */
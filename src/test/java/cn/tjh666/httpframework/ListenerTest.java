@@ -0,0 +1,110 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.server.AcceptorStats;
+import cn.tjh666.httpframework.server.HttpServer;
+import cn.tjh666.httpframework.server.Transport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static cn.tjh666.httpframework.TestSupport.trustAll;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多监听测试：明文端口、HTTPS端口和Unix域套接字共享一个服务器
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class ListenerTest {
+
+    @Test
+    void testHttpHttpsAndDomainSocket(@TempDir Path dir) throws Exception {
+        Path socket = dir.resolve("http.sock");
+        HttpServer server = new HttpServer(18089)
+            .listenSsl(18090)
+            .listenDomainSocket(socket)
+            .register(PingController.class);
+        try {
+            server.startAsync().sync();
+            List<AcceptorStats> stats = server.getAcceptorStats();
+            assertEquals(3, stats.size());
+
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            assertEquals("pong", http.send(HttpRequest.newBuilder(URI.create("http://localhost:18089/ping")).build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+
+            HttpClient https = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).sslContext(trustAll()).build();
+            assertEquals("pong", https.send(HttpRequest.newBuilder(URI.create("https://localhost:18090/ping")).build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+
+            assertTrue(Files.exists(socket));
+            String response = requestOverDomainSocket(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+            assertTrue(response.endsWith("pong"), response);
+
+            // 每个监听各接受了一个连接，连接数上限和统计对所有监听生效
+            for (AcceptorStats acceptor : stats) {
+                assertEquals(1, acceptor.getAccepted(), acceptor.toString());
+            }
+            assertTrue(server.getConnectionLimiter().getPeak() >= 1);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testDomainSocketOnNio(@TempDir Path dir) throws Exception {
+        Path socket = dir.resolve("nio.sock");
+        HttpServer server = new HttpServer(18091)
+            .transport(Transport.NIO)
+            .listenDomainSocket(socket)
+            .register(PingController.class);
+        try {
+            server.startAsync().sync();
+            String response = requestOverDomainSocket(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 通过域套接字发送请求，读取到响应体结束为止
+     */
+    private static String requestOverDomainSocket(Path socket) throws Exception {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            channel.write(ByteBuffer.wrap("GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            while (!out.toString(StandardCharsets.US_ASCII).endsWith("pong") && channel.read(buffer) >= 0) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            return out.toString(StandardCharsets.US_ASCII);
+        }
+    }
+
+    public static class PingController {
+        @Get("/ping")
+        public String ping() {
+            return "pong";
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.*;
+import cn.tjh666.httpframework.context.Request;
+import cn.tjh666.httpframework.routing.Route;
+import cn.tjh666.httpframework.routing.Router;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.FileUpload;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 参数绑定测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class ParameterBindingTest {
+
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router();
+        router.register(BindingController.class);
+    }
+
+    @Test
+    void testPathParamToLong() throws Exception {
+        assertEquals("item:42", invoke(HttpMethod.GET, "/items/42", null));
+    }
+
+    @Test
+    void testInvalidPathParam() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> invoke(HttpMethod.GET, "/items/abc", null));
+        assertTrue(e.getMessage().contains("'id'"));
+    }
+
+    @Test
+    void testQueryParamWithDefault() throws Exception {
+        assertEquals("page:1,size:20,sort:ASC", invoke(HttpMethod.GET, "/items?size=20", null));
+        assertEquals("page:3,size:5,sort:DESC", invoke(HttpMethod.GET, "/items?page=3&size=5&sort=desc", null));
+    }
+
+    @Test
+    void testEnumBindingIgnoresDefaultLocale() throws Exception {
+        Locale previous = Locale.getDefault();
+        // 土耳其语中 "i" 的大写为 "İ"
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals("page:1,size:5,sort:PRICE", invoke(HttpMethod.GET, "/items?size=5&sort=price", null));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void testMissingRequiredPrimitive() {
+        assertThrows(IllegalArgumentException.class, () -> invoke(HttpMethod.GET, "/items", null));
+    }
+
+    @Test
+    void testHeaderParam() throws Exception {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/agent");
+        httpRequest.headers().set("User-Agent", "junit");
+        Request request = new Request(httpRequest);
+
+        Route route = router.findRoute(request);
+
+        assertEquals("agent:junit", route.invoke(request, null));
+    }
+
+    @Test
+    void testJsonBody() throws Exception {
+        assertEquals("Alice/25", invoke(HttpMethod.POST, "/items", "{\"name\":\"Alice\",\"age\":25}"));
+    }
+
+    @Test
+    void testInvalidJsonBody() {
+        assertThrows(IllegalArgumentException.class, () -> invoke(HttpMethod.POST, "/items", "{invalid"));
+    }
+
+    @Test
+    void testZeroCopyBodyViews() throws Exception {
+        assertEquals("5:hello", invoke(HttpMethod.PUT, "/raw", "hello"));
+
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, "/raw",
+            Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8));
+        Request request = new Request(httpRequest);
+        assertTrue(request.getBodyBuf().isReadOnly());
+        assertEquals(5, request.getBodyBuffer().remaining());
+
+        ByteBuf retained = request.retainBodyBuf();
+        assertEquals(2, httpRequest.refCnt());
+        retained.release();
+        assertEquals(1, httpRequest.refCnt());
+    }
+
+    @Test
+    void testUrlEncodedForm() throws Exception {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/form",
+            Unpooled.copiedBuffer("title=hello+world&count=3", CharsetUtil.UTF_8));
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED);
+        Request request = new Request(httpRequest);
+
+        assertEquals("hello world:3:none", router.findRoute(request).invoke(request, null));
+        request.release();
+    }
+
+    @Test
+    void testMultipartFileOnDisk(@TempDir Path dir) throws Exception {
+        String body = "--BOUNDARY\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+            + "report\r\n"
+            + "--BOUNDARY\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+            + "Content-Type: text/plain\r\n\r\n"
+            + "file content\r\n"
+            + "--BOUNDARY--\r\n";
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/form",
+            Unpooled.copiedBuffer(body, CharsetUtil.UTF_8));
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=BOUNDARY");
+        // 阈值很小，文件字段写入磁盘
+        DefaultHttpDataFactory factory = new DefaultHttpDataFactory(4);
+        factory.setBaseDir(dir.toString());
+        Request request = new Request(httpRequest, factory);
+
+        assertEquals("report:0:a.txt", router.findRoute(request).invoke(request, null));
+        FileUpload upload = request.getFormFile("file");
+        assertFalse(upload.isInMemory());
+
+        File target = dir.resolve("moved.txt").toFile();
+        assertTrue(upload.renameTo(target));
+        request.release();
+        assertEquals("file content", Files.readString(target.toPath()));
+    }
+
+    @Test
+    void testFormParamOnNonFormRequest() {
+        assertThrows(IllegalArgumentException.class, () -> invoke(HttpMethod.POST, "/form", "title=x"));
+    }
+
+    @Test
+    void testUnboundParameterRejected() {
+        Router other = new Router();
+        assertThrows(RuntimeException.class, () -> other.register(UnboundController.class));
+    }
+
+    private Object invoke(HttpMethod method, String uri, String body) throws Exception {
+        FullHttpRequest httpRequest = body == null
+            ? new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri)
+            : new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri,
+                Unpooled.copiedBuffer(body, CharsetUtil.UTF_8));
+        Request request = new Request(httpRequest);
+
+        Route route = router.findRoute(request);
+        assertNotNull(route);
+        return route.invoke(request, null);
+    }
+
+    /**
+     * 排序方向
+     */
+    public enum Sort { ASC, DESC, PRICE }
+
+    /**
+     * 请求体对象
+     */
+    public static class Item {
+        public String name;
+        public int age;
+    }
+
+    /**
+     * 参数绑定控制器
+     */
+    public static class BindingController {
+
+        @Get("/items/{id}")
+        public String get(@PathParam("id") long id) {
+            return "item:" + id;
+        }
+
+        @Get("/items")
+        public String list(@QueryParam(value = "page", defaultValue = "1") int page,
+                           @QueryParam("size") int size,
+                           @QueryParam(value = "sort", defaultValue = "ASC") Sort sort) {
+            return "page:" + page + ",size:" + size + ",sort:" + sort;
+        }
+
+        @Get("/agent")
+        public String agent(@Header("User-Agent") String agent) {
+            return "agent:" + agent;
+        }
+
+        @Post("/items")
+        public String create(@Body Item item) {
+            return item.name + "/" + item.age;
+        }
+
+        @Post("/form")
+        public String form(@FormParam("title") String title,
+                           @FormParam(value = "count", defaultValue = "0") int count,
+                           @FormParam("file") FileUpload file) {
+            return title + ":" + count + ":" + (file != null ? file.getFilename() : "none");
+        }
+
+        @Put("/raw")
+        public String raw(@Body ByteBuf buf, @Body InputStream in) throws Exception {
+            return buf.readableBytes() + ":" + new String(in.readAllBytes(), CharsetUtil.UTF_8);
+        }
+    }
+
+    /**
+     * 存在未绑定参数的控制器
+     */
+    public static class UnboundController {
+
+        @Get("/unbound")
+        public String unbound(String value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Body;
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.annotation.Post;
+import cn.tjh666.httpframework.annotation.Streaming;
+import cn.tjh666.httpframework.context.SpooledBody;
+import cn.tjh666.httpframework.context.StreamingBody;
+import cn.tjh666.httpframework.exception.DefaultExceptionMapper;
+import cn.tjh666.httpframework.handler.RequestDispatcher;
+import cn.tjh666.httpframework.json.JsonSerializer;
+import cn.tjh666.httpframework.routing.Router;
+import cn.tjh666.httpframework.server.ConnectionTimeouts;
+import cn.tjh666.httpframework.server.HttpChannelInitializer;
+import cn.tjh666.httpframework.server.HttpServer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static cn.tjh666.httpframework.TestSupport.readLine;
+import static cn.tjh666.httpframework.TestSupport.readResponseBody;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP/1.1 管道化与刷新合并测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class PipeliningTest {
+    private static final int PIPELINED = 64;
+
+    @Test
+    void testPipelinedResponsesInOrder() throws Exception {
+        HttpServer server = new HttpServer(18085).register(PipelineController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = new Socket("localhost", 18085)) {
+                socket.setSoTimeout(5000);
+                // 一次写出8个请求，前面的请求完成得更晚
+                StringBuilder requests = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    requests.append("GET /pipeline/").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write(requests.toString().getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                for (int i = 0; i < 8; i++) {
+                    assertEquals(String.valueOf(i), readResponseBody(in));
+                }
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testHandlerErrorDoesNotStallConnection() throws Exception {
+        HttpServer server = new HttpServer(18085).register(PipelineController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = new Socket("localhost", 18085)) {
+                socket.setSoTimeout(5000);
+                // 控制器抛出 Error（同步和异步），之后的管道化请求仍须得到响应
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /pipeline/error HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /pipeline/async-error HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                assertEquals("HTTP/1.1 500 Internal Server Error", readLine(in));
+                assertTrue(readResponseBody(in).contains("boom"));
+                assertEquals("HTTP/1.1 500 Internal Server Error", readLine(in));
+                assertTrue(readResponseBody(in).contains("async boom"));
+                assertEquals("HTTP/1.1 200 OK", readLine(in));
+                assertEquals("pong", readResponseBody(in));
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testContinueAfterEarlierResponses() throws Exception {
+        HttpServer server = new HttpServer(18085).register(PipelineController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = new Socket("localhost", 18085)) {
+                socket.setSoTimeout(5000);
+                // 第一个请求较晚完成，第二个流式请求等待 100 Continue 后再发送请求体
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /pipeline/0 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "POST /pipeline/upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n"
+                        + "Expect: 100-continue\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                // 100 Continue 不能插在前一个请求的响应之前
+                assertEquals("HTTP/1.1 200 OK", readLine(in));
+                assertEquals("0", readResponseBody(in));
+                assertEquals("HTTP/1.1 100 Continue", readLine(in));
+                assertEquals("", readLine(in));
+
+                out.write("hello".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                assertEquals("HTTP/1.1 200 OK", readLine(in));
+                assertEquals("5", readResponseBody(in));
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 基准：同一次读取中的管道化请求，对比关闭和开启刷新合并时到达套接字的刷新次数（每次刷新对应一次write系统调用）
+     */
+    @Test
+    void testAggregatorResponsesAfterEarlierResponses() throws Exception {
+        HttpServer server = new HttpServer(18085).maxContentLength(16).register(PipelineController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = new Socket("localhost", 18085)) {
+                socket.setSoTimeout(5000);
+                // 第一个请求较晚完成；随后是超长的请求、声明超长的 Expect 请求和等待 100 Continue 的请求
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /pipeline/0 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "POST /pipeline/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 32\r\n\r\n"
+                        + "0123456789abcdef0123456789abcdef"
+                        + "POST /pipeline/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 64\r\n"
+                        + "Expect: 100-continue\r\n\r\n"
+                        + "POST /pipeline/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n"
+                        + "Expect: 100-continue\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                // 聚合器写出的 413 和 100 Continue 同样不能插在前一个请求的响应之前
+                assertEquals("HTTP/1.1 200 OK", readLine(in));
+                assertEquals("0", readResponseBody(in));
+                assertEquals("HTTP/1.1 413 Request Entity Too Large", readLine(in));
+                assertEquals("", readResponseBody(in));
+                assertEquals("HTTP/1.1 413 Request Entity Too Large", readLine(in));
+                assertEquals("", readResponseBody(in));
+                assertEquals("HTTP/1.1 100 Continue", readLine(in));
+                assertEquals("", readLine(in));
+
+                out.write("hello".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                assertEquals("HTTP/1.1 200 OK", readLine(in));
+                assertEquals("hello", readResponseBody(in));
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testFlushConsolidationBenchmark() {
+        int unconsolidated = countSocketFlushes(0);
+        int consolidated = countSocketFlushes(256);
+        System.out.println("Pipelined " + PIPELINED + " requests: " + unconsolidated
+                + " socket flushes without consolidation, " + consolidated + " with consolidation");
+
+        assertEquals(PIPELINED, unconsolidated);
+        assertEquals(1, consolidated);
+    }
+
+    /**
+     * 在内嵌通道上发送一批管道化请求，统计到达管道头部（即套接字）的刷新次数
+     * @param flushConsolidation 刷新合并配置
+     * @return 刷新次数
+     */
+    private static int countSocketFlushes(int flushConsolidation) {
+        JsonSerializer json = new JsonSerializer();
+        Router router = new Router(json);
+        router.register(PipelineController.class);
+        RequestDispatcher dispatcher = new RequestDispatcher(json, new DefaultExceptionMapper(), null);
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpChannelInitializer(router, dispatcher, null, null, false, false, 65536, flushConsolidation,
+                        null, new ConnectionTimeouts(null, null, null)));
+        FlushCounter counter = new FlushCounter();
+        channel.pipeline().addFirst(counter);
+
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < PIPELINED; i++) {
+            requests.append("GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+        channel.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+        channel.runPendingTasks();
+
+        StringBuilder output = new StringBuilder();
+        for (ByteBuf buf; (buf = channel.readOutbound()) != null; ) {
+            output.append(buf.toString(StandardCharsets.US_ASCII));
+            buf.release();
+        }
+        assertEquals(PIPELINED, output.toString().split("HTTP/1.1 200 OK", -1).length - 1);
+        channel.finishAndReleaseAll();
+        return counter.flushes;
+    }
+
+    /**
+     * 统计到达管道头部的刷新次数
+     */
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+        int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            super.flush(ctx);
+        }
+    }
+
+    public static class PipelineController {
+        @Get("/ping")
+        public String ping() {
+            return "pong";
+        }
+
+        @Get("/pipeline/error")
+        public String error() {
+            throw new AssertionError("boom");
+        }
+
+        @Get("/pipeline/async-error")
+        public CompletionStage<String> asyncError() {
+            return CompletableFuture.failedFuture(new AssertionError("async boom"));
+        }
+
+        @Post("/pipeline/upload")
+        @Streaming
+        public CompletionStage<String> upload(StreamingBody body) {
+            return body.spool(1024).thenApply(spooled -> {
+                try (SpooledBody data = spooled) {
+                    return String.valueOf(data.size());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Post("/pipeline/echo")
+        public String echo(@Body String body) {
+            return body;
+        }
+
+        @Get("/pipeline/{id}")
+        public CompletionStage<String> pipeline(@PathParam("id") int id) {
+            // 序号越小完成越晚，响应仍须按请求顺序返回
+            return CompletableFuture.supplyAsync(() -> String.valueOf(id),
+                    CompletableFuture.delayedExecutor((8 - id) * 20L, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Cacheable;
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.annotation.QueryParam;
+import cn.tjh666.httpframework.handler.ResponseCache;
+import cn.tjh666.httpframework.server.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 响应缓存测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class ResponseCacheTest {
+    private static final AtomicInteger INVOCATIONS = new AtomicInteger();
+
+    private HttpServer server;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        INVOCATIONS.set(0);
+        server = new HttpServer(18094).responseCache(256).register(CachedController.class);
+        server.startAsync().sync();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    void testHitSkipsController() throws Exception {
+        HttpResponse<String> first = get("/cached/time?zone=UTC", null);
+        HttpResponse<String> second = get("/cached/time?zone=UTC", null);
+        assertEquals(first.body(), second.body());
+        assertEquals("application/json; charset=UTF-8", second.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(1, INVOCATIONS.get());
+
+        // 查询参数不同的请求分别缓存
+        get("/cached/time?zone=Asia/Shanghai", null);
+        assertEquals(2, INVOCATIONS.get());
+
+        ResponseCache cache = server.getResponseCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void testEntryExpires() throws Exception {
+        get("/cached/short", null);
+        get("/cached/short", null);
+        assertEquals(1, INVOCATIONS.get());
+        Thread.sleep(150);
+        get("/cached/short", null);
+        assertEquals(2, INVOCATIONS.get());
+    }
+
+    @Test
+    void testVaryHeader() throws Exception {
+        HttpResponse<String> en = get("/cached/greeting", "en");
+        HttpResponse<String> zh = get("/cached/greeting", "zh");
+        assertEquals("hello en", en.body());
+        assertEquals("hello zh", zh.body());
+        assertEquals("Accept-Language", zh.headers().firstValue("Vary").orElse(null));
+        assertEquals("hello en", get("/cached/greeting", "en").body());
+        assertEquals(2, INVOCATIONS.get());
+    }
+
+    @Test
+    void testByteBudgetEvictsLeastRecentlyUsed() throws Exception {
+        // 每个响应体约50字节，预算256字节
+        for (int i = 0; i < 10; i++) {
+            get("/cached/item/" + i, null);
+        }
+        ResponseCache cache = server.getResponseCache();
+        assertTrue(cache.getBytes() <= 256, cache.toString());
+        assertTrue(cache.getEvictions() > 0, cache.toString());
+
+        // 最近写入的条目仍在缓存中
+        int before = INVOCATIONS.get();
+        get("/cached/item/9", null);
+        assertEquals(before, INVOCATIONS.get());
+        get("/cached/item/0", null);
+        assertEquals(before + 1, INVOCATIONS.get());
+    }
+
+    @Test
+    void testReplaceInvalidatesEntries() throws Exception {
+        get("/cached/time?zone=UTC", null);
+        assertEquals(1, server.getResponseCache().getSize());
+
+        // 替换后的控制器不能取到旧控制器缓存的响应
+        server.replace(CachedController.class, ReplacementController.class);
+        assertEquals(0, server.getResponseCache().getSize());
+        assertEquals("replaced UTC", get("/cached/time?zone=UTC", null).body());
+        assertEquals("replaced UTC", get("/cached/time?zone=UTC", null).body());
+        assertEquals(1, server.getResponseCache().getHits());
+    }
+
+    private HttpResponse<String> get(String path, String language) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:18094" + path));
+        if (language != null) {
+            request.header("Accept-Language", language);
+        }
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return response;
+    }
+
+    public static class CachedController {
+        @Get("/cached/time")
+        @Cacheable(ttl = 60)
+        public String time(@QueryParam("zone") String zone) {
+            INVOCATIONS.incrementAndGet();
+            return zone + " " + System.nanoTime();
+        }
+
+        @Get("/cached/short")
+        @Cacheable(ttl = 100, unit = TimeUnit.MILLISECONDS)
+        public String shortLived() {
+            INVOCATIONS.incrementAndGet();
+            return "short";
+        }
+
+        @Get("/cached/greeting")
+        @Cacheable(ttl = 60, headers = "Accept-Language")
+        public String greeting(cn.tjh666.httpframework.context.Request request) {
+            INVOCATIONS.incrementAndGet();
+            return "hello " + request.getHeader("Accept-Language");
+        }
+
+        @Get("/cached/item/{id}")
+        @Cacheable(ttl = 60)
+        public String item(@PathParam("id") int id) {
+            INVOCATIONS.incrementAndGet();
+            return "item-" + id + "-" + "x".repeat(40);
+        }
+    }
+
+    public static class ReplacementController {
+        @Get("/cached/time")
+        @Cacheable(ttl = 60)
+        public String time(@QueryParam("zone") String zone) {
+            return "replaced " + zone;
+        }
+    }
+}
@@ -10,6 +10,8 @@ import io.netty.util.CharsetUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -147,6 +149,159 @@ class RouterTest {
         assertEquals("2", request.getQueryParam("page"));
     }
     
+    @Test
+    void testStaticSegmentTakesPrecedenceOverParameter() {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/search");
+        Request request = new Request(httpRequest);
+        
+        Route route = router.findRoute(request);
+        
+        assertNotNull(route);
+        assertEquals("/users/search", route.getPath());
+        assertNull(request.getPathParam("id"));
+    }
+    
+    @Test
+    void testBacktrackToParameterBranch() {
+        // "/users/search/posts/1" 在静态分支 "/users/search" 处失败，应回溯到参数分支
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/search/posts/1");
+        Request request = new Request(httpRequest);
+        
+        Route route = router.findRoute(request);
+        
+        assertNotNull(route);
+        assertEquals("/users/{userId}/posts/{postId}", route.getPath());
+        assertEquals("search", request.getPathParam("userId"));
+        assertEquals("1", request.getPathParam("postId"));
+    }
+    
+    @Test
+    void testPartialPathNotMatched() {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/123/posts");
+        Request request = new Request(httpRequest);
+        
+        assertNull(router.findRoute(request));
+    }
+    
+    @Test
+    void testEncodedPathParameter() {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/john%20doe?tab=posts");
+        Request request = new Request(httpRequest);
+        
+        Route route = router.findRoute(request);
+        
+        assertNotNull(route);
+        assertEquals("/users/john doe", request.getUri());
+        assertEquals("john doe", request.getPathParam("id"));
+        assertEquals("posts", request.getQueryParam("tab"));
+        assertNull(request.getBody());
+    }
+    
+    @Test
+    void testInvokeRoute() throws Exception {
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello");
+        Request request = new Request(httpRequest);
+        
+        Route route = router.findRoute(request);
+        
+        assertNotNull(route);
+        assertEquals("Hello World", route.invoke(request, null));
+    }
+    
+    @Test
+    void testDuplicateRouteRejected() {
+        assertThrows(RuntimeException.class, () -> router.register(DuplicateController.class));
+    }
+    
+    @Test
+    void testPartialSegmentParameterRejected() {
+        Router other = new Router();
+        assertThrows(RuntimeException.class, () -> other.register(InvalidPathController.class));
+    }
+    
+    @Test
+    void testUnregister() {
+        assertTrue(router.unregister(TestController.class));
+        assertFalse(router.unregister(TestController.class));
+        assertTrue(router.getRoutes().isEmpty());
+        assertNull(router.findRoute(new Request(new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello"))));
+    }
+    
+    @Test
+    void testReplace() throws Exception {
+        router.replace(TestController.class, DuplicateController.class);
+        
+        Request request = new Request(new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello"));
+        Route route = router.findRoute(request);
+        assertNotNull(route);
+        assertEquals("Hello Again", route.invoke(request, null));
+        assertEquals(1, router.getRoutes().size());
+    }
+    
+    @Test
+    void testConflictingRegisterKeepsTable() {
+        int before = router.getRoutes().size();
+        assertThrows(RuntimeException.class, () -> router.register(DuplicateController.class));
+        assertEquals(before, router.getRoutes().size());
+        assertNotNull(router.findRoute(new Request(new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1, HttpMethod.GET, "/search"))));
+    }
+    
+    @Test
+    void testLookupDuringSwap() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread swapper = new Thread(() -> {
+            while (running.get()) {
+                router.replace(TestController.class, DuplicateController.class);
+                router.replace(DuplicateController.class, TestController.class);
+            }
+        });
+        swapper.start();
+        try {
+            // 替换是原子的，/hello 在任意时刻都能匹配到旧控制器或新控制器
+            for (int i = 0; i < 20000; i++) {
+                Request request = new Request(new DefaultFullHttpRequest(
+                    HttpVersion.HTTP_1_1, HttpMethod.GET, "/hello"));
+                Route route = router.findRoute(request);
+                assertNotNull(route);
+                Object result = route.invoke(request, null);
+                assertTrue("Hello World".equals(result) || "Hello Again".equals(result));
+            }
+        } finally {
+            running.set(false);
+            swapper.join();
+        }
+    }
+    
+    /**
+     * 重复路由控制器
+     */
+    public static class DuplicateController {
+        
+        @Get("/hello")
+        public String hello() {
+            return "Hello Again";
+        }
+    }
+    
+    /**
+     * 非法路径模板控制器
+     */
+    public static class InvalidPathController {
+        
+        @Get("/files/{name}.json")
+        public String file() {
+            return "File";
+        }
+    }
+    
     /**
      * 测试控制器类
      */
@@ -182,6 +337,11 @@ class RouterTest {
             return "Delete User";
         }
         
+        @Get("/users/search")
+        public String searchUsers() {
+            return "Search Users";
+        }
+        
         @Get("/search")
         public String search() {
             return "Search";
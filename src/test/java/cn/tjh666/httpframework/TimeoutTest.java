@@ -0,0 +1,156 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.annotation.PathParam;
+import cn.tjh666.httpframework.server.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static cn.tjh666.httpframework.TestSupport.readLine;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 超时与连接数限制测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class TimeoutTest {
+
+    @Test
+    void testIdleTimeout() throws Exception {
+        HttpServer server = new HttpServer(18088)
+            .idleTimeout(Duration.ofMillis(200))
+            .register(SlowController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = connect()) {
+                send(socket, "GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+                assertEquals(1, server.getTimeouts().getIdleClosed());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testHeaderTimeout() throws Exception {
+        HttpServer server = new HttpServer(18088)
+            .headerTimeout(Duration.ofMillis(200))
+            .register(SlowController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = connect()) {
+                // 请求头一直不发送完整
+                send(socket, "GET /slow/0 HTTP/1.1\r\nHost: loc");
+                assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 408 Request Timeout"));
+                assertEquals(1, server.getTimeouts().getHeaderTimeouts());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testRequestTimeout() throws Exception {
+        HttpServer server = new HttpServer(18088)
+            .requestTimeout(Duration.ofMillis(200))
+            .register(SlowController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket socket = connect()) {
+                send(socket, "GET /slow/2000 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertTrue(readAll(socket.getInputStream()).startsWith("HTTP/1.1 503 Service Unavailable"));
+                assertEquals(1, server.getTimeouts().getRequestTimeouts());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testConnectionLimits() throws Exception {
+        HttpServer server = new HttpServer(18088)
+            .maxConnections(2)
+            .register(SlowController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket first = connect(); Socket second = connect(); Socket third = connect()) {
+                // 超过上限的连接被直接关闭
+                assertEquals(-1, third.getInputStream().read());
+                assertEquals(1, server.getConnectionLimiter().getRejected());
+                assertEquals(2, server.getConnectionLimiter().getActive());
+                // 上限以内的连接正常处理请求
+                for (Socket accepted : new Socket[] {first, second}) {
+                    send(accepted, "GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                    assertEquals("HTTP/1.1 200 OK", readLine(accepted.getInputStream()));
+                }
+            }
+        } finally {
+            server.shutdown();
+        }
+        Thread.sleep(200);
+
+        server = new HttpServer(18088)
+            .maxConnectionsPerIp(1)
+            .register(SlowController.class);
+        try {
+            server.startAsync().sync();
+            try (Socket first = connect(); Socket second = connect()) {
+                assertEquals(-1, second.getInputStream().read());
+                assertEquals(1, server.getConnectionLimiter().getRejectedPerIp());
+                send(first, "GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertEquals("HTTP/1.1 200 OK", readLine(first.getInputStream()));
+            }
+            // 连接关闭后释放名额
+            long deadline = System.currentTimeMillis() + 2000;
+            while (server.getConnectionLimiter().getActive() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            try (Socket socket = connect()) {
+                send(socket, "GET /slow/0 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertEquals("HTTP/1.1 200 OK", readLine(socket.getInputStream()));
+            }
+            assertEquals(1, server.getConnectionLimiter().getPeak());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", 18088);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String data) throws IOException {
+        socket.getOutputStream().write(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 读取到服务器关闭连接为止
+     */
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    public static class SlowController {
+        @Get("/slow/{millis}")
+        public CompletionStage<String> slow(@PathParam("millis") int millis) {
+            return CompletableFuture.supplyAsync(() -> String.valueOf(millis),
+                    CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.server.HttpServer;
+import cn.tjh666.httpframework.server.ReloadableSslContext;
+import cn.tjh666.httpframework.server.TlsStats;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.cert.Certificate;
+import java.time.Duration;
+
+import static cn.tjh666.httpframework.TestSupport.readLine;
+import static cn.tjh666.httpframework.TestSupport.readResponseBody;
+import static cn.tjh666.httpframework.TestSupport.trustAll;
+import static cn.tjh666.httpframework.TestSupport.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TLS密钥材料持久化、会话恢复与证书热加载测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class TlsTest {
+
+    @Test
+    void testKeyStoreReusedAcrossRestarts(@TempDir Path dir) throws Exception {
+        Path keyStore = dir.resolve("tls/server.p12");
+        Certificate first = serveOnce(keyStore);
+        assertTrue(Files.exists(keyStore));
+        // 第二次启动加载同一个密钥库，证书不变
+        Certificate second = serveOnce(keyStore);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testSessionResumption(@TempDir Path dir) throws Exception {
+        HttpServer server = new HttpServer(18092)
+            .enableSsl()
+            .keyStore(dir.resolve("server.p12"), "changeit")
+            .register(PingController.class);
+        try {
+            server.startAsync().sync();
+            SSLContext context = trustAll();
+            // 每个客户端建立新连接，共享同一个SSLContext的客户端会话缓存
+            for (int i = 0; i < 3; i++) {
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).sslContext(context).build();
+                assertEquals("pong", client.send(HttpRequest.newBuilder(URI.create("https://localhost:18092/ping")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body());
+            }
+            TlsStats stats = server.getTlsStats();
+            assertEquals(3, stats.getHandshakes(), stats.toString());
+            assertEquals(1, stats.getFull(), stats.toString());
+            assertEquals(2, stats.getResumed(), stats.toString());
+            assertTrue(stats.getMaxMicros() > 0);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testCertificateHotReload(@TempDir Path dir) throws Exception {
+        Path cert = dir.resolve("server.crt");
+        Path key = dir.resolve("server.key");
+        SelfSignedCertificate original = new SelfSignedCertificate();
+        SelfSignedCertificate renewed = new SelfSignedCertificate();
+        install(original, cert, key, 0);
+
+        ReloadableSslContext ssl = ReloadableSslContext.fromFiles(cert, key).watch(Duration.ofMillis(50));
+        HttpServer server = new HttpServer(18093).sslContext(ssl).register(PingController.class);
+        try {
+            server.startAsync().sync();
+            try (SSLSocket existing = (SSLSocket) trustAll().getSocketFactory().createSocket("localhost", 18093)) {
+                existing.setSoTimeout(5000);
+                assertEquals("pong", ping(existing));
+                assertEquals(original.cert(), existing.getSession().getPeerCertificates()[0]);
+
+                // 替换证书文件，新连接使用新证书
+                install(renewed, cert, key, 5000);
+                waitFor(() -> ssl.getReloads() == 1);
+                assertEquals(renewed.cert(), serverCertificate(18093));
+
+                // 已建立的连接不受影响
+                assertEquals("pong", ping(existing));
+            }
+
+            // 私钥损坏时加载失败，继续使用当前的证书
+            Files.writeString(key, "broken");
+            Files.setLastModifiedTime(key, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            waitFor(() -> ssl.getFailures() == 1);
+            assertNotNull(ssl.getLastError());
+            assertEquals(renewed.cert(), serverCertificate(18093));
+        } finally {
+            ssl.close();
+            server.shutdown();
+            original.delete();
+            renewed.delete();
+        }
+    }
+
+    /**
+     * 复制证书和私钥，并把修改时间设置为当前时间之后，确保文件变化可以被检测到
+     */
+    private static void install(SelfSignedCertificate ssc, Path cert, Path key, long offsetMillis) throws Exception {
+        Files.copy(ssc.certificate().toPath(), cert, StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(ssc.privateKey().toPath(), key, StandardCopyOption.REPLACE_EXISTING);
+        FileTime time = FileTime.fromMillis(System.currentTimeMillis() + offsetMillis);
+        Files.setLastModifiedTime(cert, time);
+        Files.setLastModifiedTime(key, time);
+    }
+
+    private static Certificate serverCertificate(int port) throws Exception {
+        try (SSLSocket socket = (SSLSocket) trustAll().getSocketFactory().createSocket("localhost", port)) {
+            socket.startHandshake();
+            return socket.getSession().getPeerCertificates()[0];
+        }
+    }
+
+    /**
+     * 在已有连接上发送请求，按Content-Length读取响应体
+     */
+    private static String ping(SSLSocket socket) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write("GET /ping HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        readLine(in);  // 状态行
+        return readResponseBody(in);
+    }
+
+    /**
+     * 启动服务器完成一次请求，返回服务器证书
+     */
+    private static Certificate serveOnce(Path keyStore) throws Exception {
+        HttpServer server = new HttpServer(18092)
+            .enableSsl()
+            .keyStore(keyStore, "changeit")
+            .register(PingController.class);
+        try {
+            server.startAsync().sync();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).sslContext(trustAll()).build();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("https://localhost:18092/ping")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals("pong", response.body());
+            return response.sslSession().orElseThrow().getPeerCertificates()[0];
+        } finally {
+            server.shutdown();
+            Thread.sleep(200);
+        }
+    }
+
+    public static class PingController {
+        @Get("/ping")
+        public String ping() {
+            return "pong";
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package cn.tjh666.httpframework;
+
+import cn.tjh666.httpframework.annotation.Get;
+import cn.tjh666.httpframework.server.AcceptorStats;
+import cn.tjh666.httpframework.server.HttpServer;
+import cn.tjh666.httpframework.server.Transport;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 传输实现与监听套接字测试
+ *
+ * @author Schrobit
+ * @email admin@tjh666.cn
+ */
+class TransportTest {
+
+    @Test
+    void testResolveFallback() {
+        assertEquals(Transport.NIO, Transport.NIO.resolve());
+        Transport expected = Epoll.isAvailable() ? Transport.EPOLL : Transport.NIO;
+        assertEquals(expected, Transport.AUTO.resolve());
+        assertEquals(expected, Transport.EPOLL.resolve());
+        // 未引入io_uring孵化器依赖时回退
+        if (!Transport.IO_URING.isAvailable()) {
+            assertEquals(expected, Transport.IO_URING.resolve());
+        }
+    }
+
+    @Test
+    void testNioOptions() {
+        assertNull(Transport.NIO.tcpFastOpenOption());
+    }
+
+    @Test
+    void testServeWithEachTransport() throws Exception {
+        for (Transport transport : new Transport[] {Transport.NIO, Transport.AUTO}) {
+            HttpServer server = new HttpServer(18081)
+                .transport(transport)
+                .tcpQuickAck(true)
+                .tcpFastOpen(16)
+                .register(PingController.class);
+            try {
+                server.startAsync().await(5, TimeUnit.SECONDS);
+                assertEquals(transport.resolve(), server.getTransport());
+
+                HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:18081/ping").openConnection();
+                assertEquals(200, conn.getResponseCode());
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+                    assertEquals("pong", reader.readLine());
+                }
+            } finally {
+                server.shutdown();
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    @Test
+    void testMultipleAcceptors() throws Exception {
+        HttpServer server = new HttpServer(18082)
+            .acceptors(2)
+            .backlog(1024)
+            .register(PingController.class);
+        try {
+            server.startAsync().sync();
+            List<AcceptorStats> stats = server.getAcceptorStats();
+            assertEquals(2, stats.size());
+
+            for (int i = 0; i < 20; i++) {
+                new Socket("localhost", 18082).close();
+            }
+            // 接受计数在boss事件循环上更新，稍作等待
+            long deadline = System.currentTimeMillis() + 2000;
+            while (stats.stream().mapToLong(AcceptorStats::getAccepted).sum() < 20
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(20, stats.stream().mapToLong(AcceptorStats::getAccepted).sum());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 测试控制器
+     */
+    public static class PingController {
+
+        @Get("/ping")
+        public String ping() {
+            return "pong";
+        }
+    }
+}